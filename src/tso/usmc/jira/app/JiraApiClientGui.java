@@ -9,6 +9,7 @@ import java.security.cert.X509Certificate;
 import java.util.Enumeration;
 import java.util.List;
 import javax.swing.*;
+import tso.usmc.jira.service.ConnectionPool;
 import tso.usmc.jira.service.JiraApiService;
 import tso.usmc.jira.ui.BulkActionPanel;
 import tso.usmc.jira.ui.CommentSummarizerPanel;
@@ -27,12 +28,15 @@ public class JiraApiClientGui extends JFrame implements ConfigChangeListener {
     private JComboBox<String> certComboBox = new JComboBox<>();
     private JTextField baseUrlField;
     private JiraApiService apiService;
+    private String apiServiceAlias;
     private final JiraConfig jiraConfig;
     private JTabbedPane tabs;
     private TaskBuilderPanel taskBuilderPanel;
 
     public JiraApiClientGui() {
         this.jiraConfig = new JiraConfig();
+        // Before any connection is opened: the JDK reads the keep-alive cache size only once.
+        ConnectionPool.sizeKeepAliveCache(jiraConfig.getHttpMaxConnectionsPerHost(ConnectionPool.DEFAULT_MAX_PER_HOST));
         this.baseUrlField = new JTextField(jiraConfig.getJiraBaseUrl());
         this.jiraConfig.addConfigChangeListener(this);
         setTitle("USMC TSO CCB Jira Client");
@@ -93,6 +97,11 @@ public class JiraApiClientGui extends JFrame implements ConfigChangeListener {
         gbc.gridx = 4; gbc.weightx = 0;
         headerPanel.add(editTemplatesButton, gbc);
 
+        JButton exportMetricsButton = new JButton("Export Metrics");
+        exportMetricsButton.addActionListener(e -> exportMetrics());
+        gbc.gridx = 5; gbc.weightx = 0;
+        headerPanel.add(exportMetricsButton, gbc);
+
         // Row 1: Base URL
         gbc.gridx = 0; gbc.gridy = 1; gbc.weightx = 0;
         headerPanel.add(new JLabel("Jira Base URL:"), gbc);
@@ -197,18 +206,55 @@ public class JiraApiClientGui extends JFrame implements ConfigChangeListener {
     /**
      * Returns the service. Initializes it if it doesn't exist.
      */
-    public JiraApiService getService() throws Exception {
+    public synchronized JiraApiService getService() throws Exception {
         String selectedAlias = (String) certComboBox.getSelectedItem();
         if (selectedAlias == null) {
             throw new Exception("No CAC certificate selected.");
         }
         // If service doesn't exist or alias changed, create new service
+        if (apiService != null && !selectedAlias.equals(apiServiceAlias)) {
+            closeService();
+        }
         if (apiService == null) {
-            apiService = new JiraApiService(selectedAlias);
+            apiService = new JiraApiService(selectedAlias, jiraConfig);
+            apiServiceAlias = selectedAlias;
         }
         return apiService;
     }
 
+    /**
+     * Shuts down the current service, if any; the next getService() creates a new one.
+     */
+    private synchronized void closeService() {
+        if (apiService != null) {
+            apiService.close();
+            apiService = null;
+            apiServiceAlias = null;
+        }
+    }
+
+    /**
+     * Writes the per-endpoint request metrics of the current session next to the config file.
+     */
+    private void exportMetrics() {
+        JiraApiService service;
+        synchronized (this) {
+            service = apiService;
+        }
+        if (service == null) {
+            JOptionPane.showMessageDialog(this, "No requests have been sent yet.", "Export Metrics", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        try {
+            String stamp = new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new java.util.Date());
+            File metricsFile = new File(new File(jiraConfig.getConfigFile().getParentFile(), "metrics"), "metrics-" + stamp + ".json");
+            service.getMetrics().writeSnapshot(metricsFile);
+            JOptionPane.showMessageDialog(this, "Metrics written to:\n" + metricsFile.getAbsolutePath(), "Export Metrics", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error writing metrics: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     public String getBaseUrl() {
         String url = baseUrlField.getText().trim();
         return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
@@ -222,6 +268,8 @@ public class JiraApiClientGui extends JFrame implements ConfigChangeListener {
 
             // Update the Base URL field with the new value from config
             baseUrlField.setText(jiraConfig.getJiraBaseUrl());
+            // The service reads its connection settings when created, so start a new one.
+            closeService();
 
             // Provide feedback to the user that the reload happened.
             JOptionPane.showMessageDialog(this,
@@ -0,0 +1,217 @@
+package tso.usmc.jira.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A set of changes to apply to every issue of a bulk action.
+ *
+ * All field changes (labels, priority, assignee, other fields) are combined into one
+ * PUT /issue/{key} per issue, with an "update" section for add/remove operations and a
+ * "fields" section for values that are set. Comments, transitions and links need their own
+ * endpoints; they follow the edit as separate steps, in the order they were added.
+ *
+ * Setting the assignee through the edit requires the field to be on the issue's edit screen,
+ * which is the case for the default screens.
+ */
+public class BulkEditPlan {
+
+    /** A change that cannot be part of the edit. */
+    private static final class FollowUp {
+        final String kind; // "comment", "transition" or "link"
+        final String value;
+        final String extra;
+        final String description;
+
+        FollowUp(String kind, String value, String extra, String description) {
+            this.kind = kind;
+            this.value = value;
+            this.extra = extra;
+            this.description = description;
+        }
+    }
+
+    private final Map<String, JSONArray> updates = new LinkedHashMap<>();
+    private final JSONObject fields = new JSONObject();
+    private final List<String> editDescriptions = new ArrayList<>();
+    private final List<FollowUp> followUps = new ArrayList<>();
+
+    public BulkEditPlan addLabel(String label) {
+        return update("labels", "add", label, "Add Label '" + label + "'");
+    }
+
+    public BulkEditPlan removeLabel(String label) {
+        return update("labels", "remove", label, "Remove Label '" + label + "'");
+    }
+
+    public BulkEditPlan setPriority(String priorityName) {
+        return setField("priority", new JSONObject().put("name", priorityName), "Set Priority to '" + priorityName + "'");
+    }
+
+    public BulkEditPlan setAssignee(String userName) {
+        return setField("assignee", new JSONObject().put("name", userName), "Assign to '" + userName + "'");
+    }
+
+    /**
+     * Sets any field to a value in the JSON form the REST API expects for it.
+     */
+    public BulkEditPlan setField(String fieldId, Object value, String description) {
+        fields.put(fieldId, value);
+        editDescriptions.add(description);
+        return this;
+    }
+
+    public BulkEditPlan addComment(String body) {
+        followUps.add(new FollowUp("comment", body, null, "Add Comment"));
+        return this;
+    }
+
+    public BulkEditPlan transition(String transitionName) {
+        followUps.add(new FollowUp("transition", transitionName, null, "Transition to '" + transitionName + "'"));
+        return this;
+    }
+
+    /**
+     * Links each issue (inward) to the target issue (outward).
+     */
+    public BulkEditPlan linkTo(String targetKey, String linkTypeName) {
+        followUps.add(new FollowUp("link", targetKey, linkTypeName, "Link to '" + targetKey + "' as '" + linkTypeName + "'"));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return editDescriptions.isEmpty() && followUps.isEmpty();
+    }
+
+    public boolean hasTransition() {
+        return getFirstTransition() != null;
+    }
+
+    /**
+     * The name of the first transition in the plan, or null. Its availability can be checked
+     * up front; later ones depend on the status the first one leads to.
+     */
+    public String getFirstTransition() {
+        for (FollowUp f : followUps) {
+            if ("transition".equals(f.kind)) return f.value;
+        }
+        return null;
+    }
+
+    /**
+     * The changes in the order they will be applied, one entry per change.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>(editDescriptions);
+        for (FollowUp f : followUps) {
+            lines.add(f.description);
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * A short hash of everything the plan sends, including the comment bodies and link targets
+     * that describe() leaves out. Plans with the same signature make the same requests.
+     */
+    public String signature() {
+        StringBuilder sb = new StringBuilder();
+        JSONObject edit = buildEditPayload();
+        if (edit != null) sb.append(edit);
+        for (FollowUp f : followUps) {
+            sb.append('\n').append(f.kind).append('\t').append(f.value).append('\t').append(f.extra);
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The number of requests the plan costs per issue.
+     */
+    public int requestsPerIssue() {
+        return (editDescriptions.isEmpty() ? 0 : 1) + followUps.size();
+    }
+
+    /**
+     * The body of the combined edit, or null when the plan changes no fields.
+     */
+    public JSONObject buildEditPayload() {
+        if (editDescriptions.isEmpty()) return null;
+        JSONObject payload = new JSONObject();
+        if (!updates.isEmpty()) {
+            JSONObject update = new JSONObject();
+            for (Map.Entry<String, JSONArray> e : updates.entrySet()) {
+                update.put(e.getKey(), e.getValue());
+            }
+            payload.put("update", update);
+        }
+        if (fields.length() > 0) {
+            payload.put("fields", fields);
+        }
+        return payload;
+    }
+
+    /**
+     * The operations that apply the plan to one issue: the edit first, then the follow-ups.
+     * @param resolver Needed only when the plan contains a transition.
+     */
+    public List<BulkExecutor.Operation> toOperations(String key, JiraApiService service, String baseUrl,
+                                                     TransitionResolver resolver) {
+        List<BulkExecutor.Operation> ops = new ArrayList<>(requestsPerIssue());
+        JSONObject edit = buildEditPayload();
+        if (edit != null && updates.isEmpty() && fields.length() == 1 && fields.has("assignee")) {
+            // Only the assignee changes: the assign endpoint does not need the field on the edit screen.
+            String body = fields.getJSONObject("assignee").toString();
+            ops.add(new BulkExecutor.Operation(key, String.join(", ", editDescriptions), "edit",
+                    () -> service.executeRequest(baseUrl + "/rest/api/2/issue/" + key + "/assignee", "PUT", body)));
+        } else if (edit != null) {
+            String body = edit.toString();
+            ops.add(new BulkExecutor.Operation(key, String.join(", ", editDescriptions), "edit",
+                    () -> service.executeRequest(baseUrl + "/rest/api/2/issue/" + key, "PUT", body)));
+        }
+        for (FollowUp f : followUps) {
+            switch (f.kind) {
+                case "comment":
+                    String commentBody = new JSONObject().put("body", f.value).toString();
+                    ops.add(new BulkExecutor.Operation(key, f.description, f.kind,
+                            () -> service.executeRequest(baseUrl + "/rest/api/2/issue/" + key + "/comment", "POST", commentBody)));
+                    break;
+                case "transition":
+                    ops.add(new BulkExecutor.Operation(key, f.description, f.kind, () -> {
+                        if (!resolver.transition(key, f.value)) throw new Exception("Transition '" + f.value + "' not available for this issue status");
+                    }));
+                    break;
+                case "link":
+                    JSONObject link = new JSONObject();
+                    link.put("type", new JSONObject().put("name", f.extra));
+                    link.put("inwardIssue", new JSONObject().put("key", key));
+                    link.put("outwardIssue", new JSONObject().put("key", f.value));
+                    String linkBody = link.toString();
+                    ops.add(new BulkExecutor.Operation(key, f.description, f.kind,
+                            () -> service.executeRequest(baseUrl + "/rest/api/2/issueLink", "POST", linkBody)));
+                    break;
+            }
+        }
+        return ops;
+    }
+
+    private BulkEditPlan update(String fieldId, String verb, Object value, String description) {
+        updates.computeIfAbsent(fieldId, k -> new JSONArray()).put(new JSONObject().put(verb, value));
+        editDescriptions.add(description);
+        return this;
+    }
+}
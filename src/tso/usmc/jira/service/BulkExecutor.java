@@ -0,0 +1,144 @@
+package tso.usmc.jira.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations of a bulk action on several worker threads.
+ *
+ * Operations are grouped by issue key. The operations of one key run one after another, in
+ * the order they were given, on a single worker; different keys run in parallel. If an
+ * operation fails, the remaining operations of its key are skipped, since they usually
+ * depend on it (e.g. a transition after an edit).
+ *
+ * The workers only bound how many keys are in progress; the service's connection pool and
+ * rate limiter still bound the requests actually sent, so raising the worker count beyond
+ * the server's limit costs nothing but idle threads.
+ */
+public class BulkExecutor {
+
+    public static final int DEFAULT_WORKERS = 6;
+
+    /** The work of one operation. */
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    /**
+     * One request (or short sequence of requests) against one issue.
+     */
+    public static final class Operation {
+        private final String key;
+        private final String description;
+        private final String type;
+        private final Step step;
+
+        public Operation(String key, String description, Step step) {
+            this(key, description, null, step);
+        }
+
+        /**
+         * @param type What kind of operation this is (e.g. "edit", "transition"), for callers that need to tell them apart.
+         */
+        public Operation(String key, String description, String type, Step step) {
+            this.key = key;
+            this.description = description;
+            this.type = type;
+            this.step = step;
+        }
+
+        public String getKey() { return key; }
+        public String getDescription() { return description; }
+        public String getType() { return type; }
+        public Step getStep() { return step; }
+    }
+
+    /**
+     * Called on the worker threads as operations finish.
+     */
+    public interface Listener {
+        /**
+         * @param error null when the operation succeeded.
+         */
+        void onResult(Operation operation, Exception error);
+
+        /**
+         * @param perSecond Operations finished per second since the start.
+         * @param etaMillis Estimated time until all operations are finished, or -1 before the first one.
+         */
+        void onProgress(int done, int total, double perSecond, long etaMillis);
+    }
+
+    private final int workers;
+
+    public BulkExecutor(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Runs all operations and returns when they have all finished.
+     * @return The number of operations that failed or were skipped.
+     */
+    public int run(List<Operation> operations, Listener listener) throws InterruptedException {
+        Map<String, List<Operation>> byKey = new LinkedHashMap<>();
+        for (Operation op : operations) {
+            byKey.computeIfAbsent(op.key, k -> new ArrayList<>()).add(op);
+        }
+
+        int total = operations.size();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, byKey.size())), r -> {
+            Thread t = new Thread(r, "Bulk-Worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (List<Operation> lane : byKey.values()) {
+                pool.execute(() -> {
+                    Exception laneError = null;
+                    for (Operation op : lane) {
+                        Exception error = laneError != null
+                                ? new Exception("Skipped: an earlier action on this issue failed")
+                                : runStep(op);
+                        if (error != null) {
+                            laneError = error;
+                            failed.incrementAndGet();
+                        }
+                        listener.onResult(op, error);
+                        reportProgress(listener, done.incrementAndGet(), total, start);
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return failed.get();
+    }
+
+    private static Exception runStep(Operation op) {
+        try {
+            op.step.run();
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static void reportProgress(Listener listener, int done, int total, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double perSecond = seconds > 0 ? done / seconds : 0;
+        long eta = perSecond > 0 ? (long) ((total - done) / perSecond * 1000) : -1;
+        listener.onProgress(done, total, perSecond, eta);
+    }
+}
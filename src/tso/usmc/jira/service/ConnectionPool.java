@@ -0,0 +1,209 @@
+package tso.usmc.jira.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Keep-alive transport for the Jira client.
+ *
+ * HttpsURLConnection only hands back a cached keep-alive connection when the new request
+ * uses the very same SSLSocketFactory instance as the one that opened it, and
+ * SSLContext.getSocketFactory() returns a fresh instance on every call. This class owns the
+ * single factory every request must use, bounds the number of concurrent connections per host,
+ * enables TLS session resumption on the shared context and keeps handshake statistics.
+ *
+ * Idle connections are held in the JDK keep-alive cache (sized through http.maxConnections),
+ * which closes them after the server's Keep-Alive timeout, or 5 seconds when none is sent.
+ * The JDK reads that property only once, when the first HTTP connection is opened, so the
+ * cache is sized by sizeKeepAliveCache() at startup. A pool created later with more
+ * connections per host still bounds them through its semaphores, but the extra connections
+ * are closed instead of kept alive until the application restarts.
+ */
+public class ConnectionPool {
+
+    public static final int DEFAULT_MAX_PER_HOST = 8;
+    private static final int SESSION_CACHE_SIZE = 64;
+    private static final int SESSION_TIMEOUT_SECONDS = 8 * 60 * 60;
+    private static final int MAX_TRACKED_SESSIONS = 256;
+
+    private final int maxPerHost;
+    private final SSLSocketFactory socketFactory;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong socketsOpened = new AtomicLong();
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    private final Map<ByteBuffer, Boolean> seenSessions = Collections.synchronizedMap(
+            new LinkedHashMap<ByteBuffer, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+                    return size() > MAX_TRACKED_SESSIONS;
+                }
+            });
+
+    public ConnectionPool(SSLContext sslContext, int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+
+        SSLSessionContext sessions = sslContext.getClientSessionContext();
+        if (sessions != null) {
+            sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessions.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+        }
+
+        sizeKeepAliveCache(this.maxPerHost); // No effect once a connection was opened; see the class doc
+
+        this.socketFactory = new TrackingSocketFactory(sslContext.getSocketFactory());
+    }
+
+    /**
+     * Lets the JDK keep-alive cache hold up to maxPerHost idle connections per destination.
+     * Must run before the first HTTP connection of the process to have any effect. Only
+     * raises the limit; never shrinks a value the user passed on the command line.
+     */
+    public static void sizeKeepAliveCache(int maxPerHost) {
+        int cached = Integer.getInteger("http.maxConnections", 5);
+        if (cached < maxPerHost) {
+            System.setProperty("http.maxConnections", String.valueOf(maxPerHost));
+        }
+    }
+
+    /**
+     * The factory to install on every HttpsURLConnection. Always the same instance.
+     */
+    public SSLSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    /**
+     * Blocks until a connection slot for the host is free. Must be paired with release().
+     */
+    public void acquire(String host) throws InterruptedException {
+        permitsFor(host).acquire();
+        activeExchanges.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    public void release(String host) {
+        activeExchanges.decrementAndGet();
+        permitsFor(host).release();
+    }
+
+    private Semaphore permitsFor(String host) {
+        return hostPermits.computeIfAbsent(host.toLowerCase(), h -> new Semaphore(maxPerHost, true));
+    }
+
+    public long getRequestCount() { return requests.get(); }
+    public long getSocketsOpened() { return socketsOpened.get(); }
+    public long getFullHandshakes() { return fullHandshakes.get(); }
+    public long getResumedHandshakes() { return resumedHandshakes.get(); }
+    public int getActiveExchanges() { return activeExchanges.get(); }
+
+    /**
+     * Requests that were served over an already open connection.
+     */
+    public long getReusedConnections() {
+        return Math.max(0, requests.get() - socketsOpened.get());
+    }
+
+    public String getStatistics() {
+        return "Requests: " + getRequestCount()
+                + " | Connections opened: " + getSocketsOpened()
+                + " | Reused: " + getReusedConnections()
+                + " | Full handshakes: " + getFullHandshakes()
+                + " | Resumed sessions: " + getResumedHandshakes()
+                + " | Active: " + getActiveExchanges();
+    }
+
+    private void onHandshakeCompleted(HandshakeCompletedEvent event) {
+        byte[] id = event.getSession().getId();
+        if (id == null || id.length == 0) {
+            fullHandshakes.incrementAndGet();
+            return;
+        }
+        if (seenSessions.put(ByteBuffer.wrap(id.clone()), Boolean.TRUE) != null) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delegating factory that counts new sockets and the handshakes performed on them.
+     */
+    private class TrackingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+
+        TrackingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket track(Socket socket) {
+            socketsOpened.incrementAndGet();
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(ConnectionPool.this::onHandshakeCompleted);
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return track(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
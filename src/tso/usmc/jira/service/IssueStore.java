@@ -0,0 +1,435 @@
+package tso.usmc.jira.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Local copy of Jira issues that is kept current with incremental syncs.
+ *
+ * Snapshots are stored in an append-only log (issues.log). Each record holds the issue key,
+ * its "updated" timestamp, the fields it was fetched with and the issue JSON. An in-memory
+ * index points at the newest record of every key and is rebuilt by scanning the record
+ * headers on open. A torn record at the end of the log (crash mid-write) is cut off, and
+ * the log is rewritten without superseded records once they make up more than half of it.
+ *
+ * A sync is scoped by JQL and field list. The first sync of a scope downloads everything.
+ * Later syncs fetch "(jql) AND updated >= lastSync" with the full fields, then do a cheap pass
+ * that lists only key and updated for the whole scope. That pass finds issues that left the
+ * scope, and refetches by key anything the delta missed (clock skew, field changes).
+ * Scope state is kept in scopes.json.
+ *
+ * Costs to keep in mind: the index holds one small entry per key ever stored and is not
+ * bounded (compaction shrinks the log, not the index), and every sync after the first lists
+ * key and updated of the whole scope, so a sync costs a listing of every issue in scope
+ * (up to LIST_PAGE_SIZE per request) even when nothing changed.
+ *
+ * With no directory the store lives in memory only and starts empty with every session;
+ * it then holds the JSON of every stored issue in the heap.
+ */
+public class IssueStore {
+
+    private static final int FETCH_BY_KEY_BATCH = 100;
+    private static final int PAGE_SIZE = 500;
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final long SYNC_MARGIN_MILLIS = 2 * 60 * 1000; // JQL dates have minute precision
+    private static final int MAX_SCOPES = 200;
+    /** Written into stored issues by earlier versions; removed before an issue is handed out. */
+    private static final String LEGACY_FIELDS_MARKER = "_storeFields";
+
+    private static final byte PUT = 1;
+
+    /** Where the newest snapshot of a key lives. */
+    private static final class Location {
+        final long offset;
+        final int length;
+        final String updated;
+        final Set<String> fields;
+        final JSONObject inMemory; // Only used when there is no log file
+
+        Location(long offset, int length, String updated, Set<String> fields, JSONObject inMemory) {
+            this.offset = offset;
+            this.length = length;
+            this.updated = updated;
+            this.fields = fields;
+            this.inMemory = inMemory;
+        }
+    }
+
+    private static final class Scope {
+        long lastSync;
+        List<String> keys = new ArrayList<>();
+    }
+
+    private final JiraApiService service;
+    private final String baseUrl;
+    private final File dir;
+    private final File logFile;
+    private final File scopesFile;
+
+    private final Map<String, Location> index = new HashMap<>();
+    private final Map<String, Scope> scopes = new LinkedHashMap<>();
+    private RandomAccessFile reader;
+    private DataOutputStream writer;
+    private long logLength;
+    private long liveBytes;
+    private TimeZone jiraTimeZone;
+
+    /**
+     * @param dir Directory for the log and scope state, or null to keep the store in memory.
+     */
+    public IssueStore(JiraApiService service, String baseUrl, File dir) throws IOException {
+        this.service = service;
+        this.baseUrl = baseUrl;
+        this.dir = dir;
+        this.logFile = dir == null ? null : new File(dir, "issues.log");
+        this.scopesFile = dir == null ? null : new File(dir, "scopes.json");
+        if (dir != null) {
+            dir.mkdirs();
+            openLog();
+            loadScopes();
+        }
+    }
+
+    /**
+     * Brings the local copy of every issue matching the JQL up to date, then delivers the
+     * snapshots of all matching issues from the store.
+     * @return The number of issues delivered.
+     */
+    public int sync(String jql, Collection<String> fields, SearchStreamReader.IssueCallback consumer) throws Exception {
+        Set<String> wanted = new TreeSet<>(fields);
+        wanted.add("updated");
+        String scopeId = jql + "|" + String.join(",", wanted);
+        long started = System.currentTimeMillis();
+
+        Scope previous;
+        synchronized (this) {
+            previous = scopes.get(scopeId);
+        }
+        List<String> members = new ArrayList<>();
+        if (previous == null) {
+            search(jql, wanted, PAGE_SIZE, issue -> {
+                put(issue, wanted);
+                members.add(issue.getString("key"));
+            });
+        } else {
+            // 1. Everything that changed since the last run, with full fields.
+            String since = formatForJql(previous.lastSync - SYNC_MARGIN_MILLIS);
+            search("(" + jql + ") AND updated >= \"" + since + "\"", wanted, PAGE_SIZE, issue -> put(issue, wanted));
+
+            // 2. Key and updated only: the current members, and anything step 1 could not see.
+            List<String> stale = new ArrayList<>();
+            search(jql, Collections.singleton("updated"), LIST_PAGE_SIZE, issue -> {
+                String key = issue.getString("key");
+                members.add(key);
+                String updated = issue.getJSONObject("fields").optString("updated", "");
+                if (!isCurrent(key, updated, wanted)) stale.add(key);
+            });
+            fetchByKeys(stale, wanted);
+        }
+
+        synchronized (this) {
+            Scope scope = new Scope();
+            scope.lastSync = started;
+            scope.keys = members;
+            scopes.remove(scopeId);
+            scopes.put(scopeId, scope);
+            while (scopes.size() > MAX_SCOPES) {
+                scopes.remove(scopes.keySet().iterator().next());
+            }
+            saveScopes();
+        }
+
+        int delivered = 0;
+        for (String key : members) {
+            JSONObject issue = get(key);
+            if (issue != null) {
+                consumer.onIssue(issue);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Returns the stored snapshot of an issue, or null.
+     */
+    public synchronized JSONObject get(String key) throws IOException {
+        Location loc = index.get(key);
+        if (loc == null) return null;
+        if (loc.inMemory != null) return new JSONObject(loc.inMemory.toString());
+        byte[] body = new byte[loc.length];
+        reader.seek(loc.offset);
+        reader.readFully(body);
+        JSONObject issue = new JSONObject(new String(body, StandardCharsets.UTF_8));
+        issue.remove(LEGACY_FIELDS_MARKER);
+        return issue;
+    }
+
+    /**
+     * The directory of the store, or null when it is kept in memory.
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) writer.close();
+        if (reader != null) reader.close();
+        writer = null;
+        reader = null;
+    }
+
+    private void search(String jql, Set<String> fields, int pageSize, SearchStreamReader.IssueCallback callback) throws Exception {
+        JSONObject payload = new JSONObject().put("jql", jql).put("fields", new JSONArray(fields));
+        new PaginatedSearch(service, baseUrl + "/rest/api/2/search", PaginatedSearch.Mode.AUTO).run(payload, pageSize, callback);
+    }
+
+    private void fetchByKeys(List<String> keys, Set<String> fields) throws Exception {
+        for (int i = 0; i < keys.size(); i += FETCH_BY_KEY_BATCH) {
+            List<String> batch = keys.subList(i, Math.min(keys.size(), i + FETCH_BY_KEY_BATCH));
+            search("key in (" + String.join(",", batch) + ")", fields, FETCH_BY_KEY_BATCH, issue -> put(issue, fields));
+        }
+    }
+
+    private synchronized boolean isCurrent(String key, String updated, Set<String> fields) {
+        Location loc = index.get(key);
+        return loc != null && loc.updated.equals(updated) && loc.fields.containsAll(fields);
+    }
+
+    /**
+     * Stores a snapshot. A snapshot with the same "updated" as the stored one only adds fields,
+     * so scopes that fetch different fields of the same issue do not undo each other.
+     */
+    private synchronized void put(JSONObject issue, Set<String> fetchedFields) throws IOException {
+        String key = issue.getString("key");
+        JSONObject fields = issue.optJSONObject("fields");
+        String updated = fields == null ? "" : fields.optString("updated", "");
+        Set<String> allFields = new TreeSet<>(fetchedFields);
+
+        Location existing = index.get(key);
+        if (existing != null && existing.updated.equals(updated)) {
+            if (existing.fields.containsAll(fetchedFields)) return; // Nothing new
+            JSONObject merged = get(key);
+            JSONObject mergedFields = merged.optJSONObject("fields");
+            if (mergedFields != null && fields != null) {
+                for (String name : fields.keySet()) {
+                    mergedFields.put(name, fields.get(name));
+                }
+            }
+            issue = merged;
+            allFields.addAll(existing.fields);
+        }
+        append(key, updated, allFields, issue);
+    }
+
+    // --- Log file ---
+
+    private void append(String key, String updated, Set<String> fields, JSONObject issue) throws IOException {
+        Location old = index.get(key);
+        if (dir == null) {
+            index.put(key, new Location(0, 0, updated, fields, issue));
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] updatedBytes = updated.getBytes(StandardCharsets.UTF_8);
+        byte[] fieldBytes = String.join(",", fields).getBytes(StandardCharsets.UTF_8);
+        byte[] body = issue.toString().getBytes(StandardCharsets.UTF_8);
+
+        long headerLength = 1 + 4 + keyBytes.length + 4 + updatedBytes.length + 4 + fieldBytes.length + 4;
+        writer.writeByte(PUT);
+        writeBytes(writer, keyBytes);
+        writeBytes(writer, updatedBytes);
+        writeBytes(writer, fieldBytes);
+        writeBytes(writer, body);
+        writer.flush();
+
+        long bodyOffset = logLength + headerLength;
+        logLength = bodyOffset + body.length;
+        if (old != null) liveBytes -= old.length;
+        liveBytes += body.length;
+        index.put(key, new Location(bodyOffset, body.length, updated, fields, null));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void openLog() throws IOException {
+        long goodLength = 0;
+        if (logFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile), 1 << 16))) {
+                while (true) {
+                    long start = goodLength;
+                    try {
+                        if (in.readByte() != PUT) break;
+                        String key = new String(readBytes(in), StandardCharsets.UTF_8);
+                        String updated = new String(readBytes(in), StandardCharsets.UTF_8);
+                        String fieldList = new String(readBytes(in), StandardCharsets.UTF_8);
+                        int bodyLength = in.readInt();
+                        long headerLength = 1 + 4 + key.getBytes(StandardCharsets.UTF_8).length
+                                + 4 + updated.getBytes(StandardCharsets.UTF_8).length
+                                + 4 + fieldList.getBytes(StandardCharsets.UTF_8).length + 4;
+                        skipFully(in, bodyLength);
+                        Location old = index.get(key);
+                        if (old != null) liveBytes -= old.length;
+                        liveBytes += bodyLength;
+                        Set<String> fields = new TreeSet<>(Arrays.asList(fieldList.split(",")));
+                        index.put(key, new Location(start + headerLength, bodyLength, updated, fields, null));
+                        goodLength = start + headerLength + bodyLength;
+                    } catch (EOFException torn) {
+                        break;
+                    }
+                }
+            }
+            if (goodLength < logFile.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                    raf.setLength(goodLength); // Drop a half-written last record
+                }
+            }
+        }
+        logLength = goodLength;
+        reader = new RandomAccessFile(logFile, "r");
+        writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true), 1 << 16));
+
+        if (logLength > 1024 * 1024 && liveBytes * 2 < logLength) {
+            compact();
+        }
+    }
+
+    private static void skipFully(DataInputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Record body cut off");
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 64 * 1024 * 1024) throw new EOFException("Corrupt record");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Rewrites the log with only the newest record of every key.
+     */
+    private void compact() throws IOException {
+        Map<String, JSONObject> live = new LinkedHashMap<>();
+        for (String key : index.keySet()) {
+            live.put(key, get(key));
+        }
+        Map<String, Location> oldIndex = new HashMap<>(index);
+        close();
+
+        File temp = new File(dir, "issues.log.tmp");
+        Files.deleteIfExists(temp.toPath());
+        index.clear();
+        logLength = 0;
+        liveBytes = 0;
+        writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        for (Map.Entry<String, JSONObject> e : live.entrySet()) {
+            Location loc = oldIndex.get(e.getKey());
+            append(e.getKey(), loc.updated, loc.fields, e.getValue());
+        }
+        writer.close();
+        Files.move(temp.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        reader = new RandomAccessFile(logFile, "r");
+        writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true), 1 << 16));
+    }
+
+    // --- Scope state ---
+
+    private void loadScopes() {
+        if (!scopesFile.isFile()) return;
+        try (Reader in = new InputStreamReader(new FileInputStream(scopesFile), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(in));
+            for (String id : json.keySet()) {
+                JSONObject s = json.getJSONObject(id);
+                Scope scope = new Scope();
+                scope.lastSync = s.getLong("lastSync");
+                JSONArray keys = s.getJSONArray("keys");
+                for (int i = 0; i < keys.length(); i++) scope.keys.add(keys.getString(i));
+                scopes.put(id, scope);
+            }
+        } catch (Exception e) {
+            System.err.println("Ignoring unreadable issue store scopes: " + e.getMessage());
+            scopes.clear(); // Every scope does a full sync again
+        }
+    }
+
+    private void saveScopes() throws IOException {
+        if (scopesFile == null) return;
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Scope> e : scopes.entrySet()) {
+            json.put(e.getKey(), new JSONObject().put("lastSync", e.getValue().lastSync).put("keys", new JSONArray(e.getValue().keys)));
+        }
+        File temp = new File(dir, "scopes.json.tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            json.write(out);
+        }
+        Files.move(temp.toPath(), scopesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * JQL date literals are read in the time zone of the Jira user, not the client's.
+     */
+    private String formatForJql(long millis) {
+        if (jiraTimeZone == null) {
+            TimeZone zone = TimeZone.getDefault();
+            try {
+                String myself = service.executeRequest(baseUrl + "/rest/api/2/myself", "GET", null);
+                String id = new JSONObject(myself).optString("timeZone", null);
+                if (id != null) zone = TimeZone.getTimeZone(id);
+            } catch (Exception e) {
+                System.err.println("Could not read the Jira time zone, using the local one: " + e.getMessage());
+            }
+            jiraTimeZone = zone;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+        format.setTimeZone(jiraTimeZone);
+        return format.format(new Date(millis));
+    }
+}
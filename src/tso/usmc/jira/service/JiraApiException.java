@@ -0,0 +1,33 @@
+package tso.usmc.jira.service;
+
+/**
+ * A request that Jira answered with an error status. The message holds the status and the
+ * response body, as before; callers that act on the outcome should check getStatusCode().
+ */
+public class JiraApiException extends Exception {
+
+    private final int statusCode;
+
+    public JiraApiException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * True for a 4xx answer: Jira rejected the request, so it changed nothing.
+     */
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+
+    /**
+     * True when the exception is a JiraApiException for a 4xx answer.
+     */
+    public static boolean isClientError(Exception e) {
+        return e instanceof JiraApiException && ((JiraApiException) e).isClientError();
+    }
+}
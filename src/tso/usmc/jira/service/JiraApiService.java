@@ -111,118 +111,697 @@ import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.*;
+import tso.usmc.jira.util.JiraConfig;
 
 public class JiraApiService {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 6;
+    public static final int DEFAULT_KEYSET_THRESHOLD = 5000;
+
     private SSLContext sslContext;
+    private final ConnectionPool connectionPool;
+    /** Attachment clones that hold their download's slot while the upload waits for one. */
+    private final Semaphore pipedClones;
+    private final ExecutorService asyncExecutor;
+    private final int maxInFlight;
+    private final int keysetThreshold;
+    private final RateLimiter rateLimiter;
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong wireBytesReceived = new AtomicLong();
+    private final AtomicLong decodedBytesReceived = new AtomicLong();
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final ResponseCache responseCache;
+    private final Map<String, TransitionResolver> transitionResolvers = new ConcurrentHashMap<>();
+    private final Map<String, IssueStore> issueStores = new ConcurrentHashMap<>();
+    private final File issueStoreRoot;
 
     public JiraApiService(String selectedAlias) throws Exception {
+        this(selectedAlias, null);
+    }
+
+    public JiraApiService(String selectedAlias, JiraConfig config) throws Exception {
+        int maxPerHost = ConnectionPool.DEFAULT_MAX_PER_HOST;
+        int inFlight = DEFAULT_MAX_IN_FLIGHT;
+        double maxRate = RateLimiter.DEFAULT_MAX_RATE;
+        int cacheMemoryMb = ResponseCache.DEFAULT_MAX_MEMORY_MB;
+        int cacheTtlSeconds = ResponseCache.DEFAULT_TTL_SECONDS;
+        int cacheDiskMb = ResponseCache.DEFAULT_MAX_DISK_MB;
+        File cacheDir = null;
+        int keysetAbove = DEFAULT_KEYSET_THRESHOLD;
+        if (config != null) {
+            keysetAbove = config.getHttpSearchKeysetThreshold(keysetAbove);
+            maxPerHost = config.getHttpMaxConnectionsPerHost(maxPerHost);
+            inFlight = config.getHttpMaxInFlight(inFlight);
+            maxRate = config.getHttpMaxRequestsPerSecond(maxRate);
+            cacheMemoryMb = config.getHttpCacheMaxMemoryMb(cacheMemoryMb);
+            cacheTtlSeconds = config.getHttpCacheTtlSeconds(cacheTtlSeconds);
+            cacheDiskMb = config.getHttpCacheDiskMaxMb(cacheDiskMb);
+            if (config.isHttpCacheDiskEnabled()) {
+                // One cache per certificate, like the issue store; the cache splits it further by server.
+                cacheDir = new File(new File(config.getConfigFile().getParentFile(), "cache"), safeFileName(selectedAlias));
+            }
+        }
+        // One store per certificate, so nobody reads issues they could not see in Jira.
+        this.issueStoreRoot = config != null && config.isIssueStoreEnabled()
+                ? new File(new File(config.getConfigFile().getParentFile(), "store"), safeFileName(selectedAlias))
+                : null;
+        this.rateLimiter = new RateLimiter(maxRate);
+        this.responseCache = new ResponseCache(cacheMemoryMb * 1024L * 1024L, cacheTtlSeconds * 1000L,
+                cacheDir, cacheDiskMb * 1024L * 1024L);
         this.sslContext = createSslContext(selectedAlias);
+        this.connectionPool = new ConnectionPool(this.sslContext, maxPerHost);
+        // Leave one slot per host that no waiting clone holds, so an upload always gets one.
+        this.pipedClones = new Semaphore(Math.max(0, connectionPool.getMaxPerHost() - 1));
+        this.maxInFlight = Math.max(1, inFlight);
+        this.keysetThreshold = keysetAbove;
+        this.asyncExecutor = Executors.newFixedThreadPool(this.maxInFlight, daemonThreadFactory("JiraApi-Async-"));
     }
 
-    public String executeRequest(String urlString, String method, String jsonBody) throws Exception {
-        URL url = new URL(urlString);
-        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-        conn.setSSLSocketFactory(this.sslContext.getSocketFactory());
-        conn.setRequestMethod(method);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("Accept", "application/json");
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
 
-        if (("POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)) && jsonBody != null) {
-            conn.setDoOutput(true);
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(jsonBody.getBytes("UTF-8"));
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Result sets larger than this are paged by issue id instead of startAt (see PaginatedSearch.Mode.AUTO).
+     */
+    public int getKeysetThreshold() {
+        return keysetThreshold;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * The transition resolver shared by every panel talking to the given Jira instance.
+     */
+    public TransitionResolver getTransitionResolver(String baseUrl) {
+        return transitionResolvers.computeIfAbsent(baseUrl, url -> new TransitionResolver(this, url));
+    }
+
+    /**
+     * The local issue store for the given Jira instance. Kept on disk when issue_store.enabled
+     * is set, otherwise in memory for this session only.
+     */
+    public IssueStore getIssueStore(String baseUrl) {
+        return issueStores.computeIfAbsent(baseUrl, url -> {
+            File dir = issueStoreRoot == null ? null : new File(issueStoreRoot, safeFileName(url.replaceAll("^https?://", "")));
+            try {
+                return new IssueStore(this, url, dir);
+            } catch (IOException e) {
+                System.err.println("Issue store unavailable, keeping issues in memory: " + e.getMessage());
+                try {
+                    return new IssueStore(this, url, null);
+                } catch (IOException impossible) {
+                    throw new UncheckedIOException(impossible);
+                }
             }
+        });
+    }
+
+    /**
+     * Latency, byte and status statistics per endpoint for every request sent by this service.
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs request work on the shared request pool. At most getMaxInFlight() tasks run at
+     * once; everything else queues. Connections per host are further bounded by the connection
+     * pool, so the blocking and async paths together never exceed that limit. A task cancelled
+     * before it starts is never run.
+     */
+    public <T> CompletableFuture<T> submit(java.util.concurrent.Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        asyncExecutor.execute(() -> {
+            if (future.isCancelled()) return;
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops the async request pool once the work already submitted has run; later submit()
+     * calls fail. Blocking requests keep working. Call it when the service
+     * is replaced, so the pool's threads do not outlive it.
+     */
+    public void close() {
+        asyncExecutor.shutdown();
+    }
+
+    static String safeFileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true); // Never keep the JVM alive for pending requests
+            return t;
+        };
+    }
+
+    public String executeRequest(String urlString, String method, String jsonBody) throws Exception {
+        if ("GET".equalsIgnoreCase(method) && responseCache.isEnabled()) {
+            return cachedGet(urlString);
+        }
+        try (Exchange ex = send(urlString, method, conn -> sendJson(conn, method, jsonBody))) {
+            String body = readResponse(ex, true);
+            if (ex.code >= 300) {
+                throw new JiraApiException("Jira API request failed with code " + ex.code + ": " + body, ex.code);
+            }
+            return body;
         }
+    }
 
-        int code = conn.getResponseCode();
-        InputStream is = (code >= 200 && code < 300) ? conn.getInputStream() : conn.getErrorStream();
-        
-        StringBuilder sb = new StringBuilder();
-        if (is != null) {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line).append("\n");
-                }
+    /**
+     * GET through the response cache: fresh entries are returned without a request, entries
+     * with validators are revalidated with a conditional GET, everything else is fetched and stored.
+     */
+    private String cachedGet(String urlString) throws Exception {
+        ResponseCache.Entry cached = responseCache.get(urlString);
+        if (cached != null && responseCache.isFresh(cached)) {
+            responseCache.onHit();
+            return cached.getBody();
+        }
+
+        RequestWriter writer = conn -> {
+            long written = sendJson(conn, "GET", null);
+            if (cached != null && cached.getEtag() != null) {
+                conn.setRequestProperty("If-None-Match", cached.getEtag());
+            }
+            if (cached != null && cached.getLastModified() != null) {
+                conn.setRequestProperty("If-Modified-Since", cached.getLastModified());
             }
+            return written;
+        };
+        try (Exchange ex = send(urlString, "GET", writer)) {
+            if (ex.code == 304 && cached != null) {
+                readResponse(ex, false); // Nothing to read, but frees the connection
+                responseCache.onNotModified(cached);
+                return cached.getBody();
+            }
+            String body = readResponse(ex, true);
+            if (ex.code >= 300) {
+                throw new JiraApiException("Jira API request failed with code " + ex.code + ": " + body, ex.code);
+            }
+            responseCache.onMiss();
+            responseCache.put(urlString, body, ex.conn.getHeaderField("ETag"), ex.conn.getHeaderField("Last-Modified"));
+            return body;
         }
-        if (code >= 300) {
-            throw new Exception("Jira API request failed with code " + code + ": " + sb.toString());
+    }
+
+    /**
+     * Consumes a successful response body as a stream. The service closes the stream afterwards.
+     */
+    public interface ResponseHandler<T> {
+        T handle(InputStream body) throws Exception;
+    }
+
+    /**
+     * Like executeRequest, but hands the response body to the handler while it is still
+     * arriving instead of buffering it into a String first. Error responses are read and
+     * thrown exactly as executeRequest does.
+     */
+    public <T> T executeStreaming(String urlString, String method, String jsonBody, ResponseHandler<T> handler) throws Exception {
+        try (Exchange ex = send(urlString, method, conn -> sendJson(conn, method, jsonBody))) {
+            if (ex.code >= 300) {
+                throw new JiraApiException("Jira API request failed with code " + ex.code + ": " + readResponse(ex, true), ex.code);
+            }
+            try (InputStream is = openBody(ex)) {
+                T result = handler.handle(is);
+                drain(is);
+                return result;
+            }
         }
-        return sb.toString();
+    }
+
+    /**
+     * POSTs a search payload and delivers each issue to the callback as it is parsed.
+     * @param searchUrl Full URL of the /rest/api/2/search endpoint.
+     * @return The paging details (startAt, total and number of issues delivered).
+     */
+    public SearchStreamReader.PageInfo streamSearch(String searchUrl, String jsonPayload, SearchStreamReader.IssueCallback callback) throws Exception {
+        return executeStreaming(searchUrl, "POST", jsonPayload,
+                body -> SearchStreamReader.read(new BufferedReader(new InputStreamReader(body, "UTF-8")), callback));
     }
     public File downloadAttachmentToTempFile(String fileUrl, String originalFilename) throws Exception {
-        URL downloadUrl = new URL(fileUrl);
-        HttpsURLConnection dlConn = (HttpsURLConnection) downloadUrl.openConnection();
-        
-        // Use the SSLContext that was configured when this service was created.
-        dlConn.setSSLSocketFactory(this.sslContext.getSocketFactory());
-        String suffix = ".tmp"; // Default fallback
-            int dotIndex = originalFilename.lastIndexOf('.');
-        if (dotIndex >= 0 && dotIndex < originalFilename.length() - 1) {
-           suffix = originalFilename.substring(dotIndex);
-        }
-        // Create a temporary file to store the download.
-        File tempFile = File.createTempFile("jira-attachment-", ".tmp");
-        
-        // Use try-with-resources to ensure streams are closed automatically.
-        try (InputStream in = dlConn.getInputStream(); FileOutputStream out = new FileOutputStream(tempFile)) {
-            byte[] buffer = new byte[8192]; // Use a slightly larger buffer
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+        try (Exchange ex = send(fileUrl, "GET", null)) {
+            if (ex.code >= 300) {
+                throw new JiraApiException("Attachment download failed with code " + ex.code + ": " + readResponse(ex, true), ex.code);
+            }
+            String suffix = ".tmp"; // Default fallback
+                int dotIndex = originalFilename.lastIndexOf('.');
+            if (dotIndex >= 0 && dotIndex < originalFilename.length() - 1) {
+               suffix = originalFilename.substring(dotIndex);
             }
+            // Create a temporary file to store the download.
+            File tempFile = File.createTempFile("jira-attachment-", ".tmp");
+
+            // Use try-with-resources to ensure streams are closed automatically.
+            try (InputStream in = openBody(ex); FileOutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[8192]; // Use a slightly larger buffer
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, bytesRead);
+                }
+            }
+
+            // Return the handle to the downloaded temporary file.
+            return tempFile;
         }
-        
-        // Return the handle to the downloaded temporary file.
-        return tempFile;
     }
     public String uploadAttachment(String urlString, File fileToUpload, String originalFilename) throws Exception {
         String boundary = "---" + System.currentTimeMillis() + "---";
-        URL url = new URL(urlString);
-        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-        conn.setSSLSocketFactory(this.sslContext.getSocketFactory());
+        RequestWriter writer = conn -> {
+            try (FileInputStream fis = new FileInputStream(fileToUpload)) {
+                return writeMultipart(conn, boundary, originalFilename, fis, fileToUpload.length());
+            }
+        };
+
+        try (Exchange ex = send(urlString, "POST", writer)) {
+            String body = readResponse(ex, false);
+            if (ex.code >= 300) {
+                throw new JiraApiException("Jira API request failed with code " + ex.code + ": " + body, ex.code);
+            }
+            return body;
+        }
+    }
+
+    /**
+     * Copies an attachment to another issue by piping the download straight into the upload.
+     * When the server reports the download size, nothing touches the disk and only one
+     * transfer buffer is held in memory. Without a Content-Length the download is spooled to
+     * a temp file first, because the multipart upload is sent with a fixed length. The same
+     * happens when too many clones already hold a download open, so uploads never wait on
+     * connection slots that only other waiting clones could give back.
+     * @return The upload response body.
+     */
+    public String cloneAttachment(String downloadUrl, String uploadUrl, String originalFilename) throws Exception {
+        Exchange download = send(downloadUrl, "GET", null);
+        try {
+            if (download.code >= 300) {
+                throw new JiraApiException("Attachment download failed with code " + download.code + ": " + readResponse(download, true), download.code);
+            }
+            long length = download.conn.getContentLengthLong();
+            if (length < 0 || !pipedClones.tryAcquire()) {
+                return cloneViaTempFile(download, uploadUrl, originalFilename);
+            }
+            try {
+                return pipeToUpload(download, length, uploadUrl, originalFilename);
+            } finally {
+                pipedClones.release();
+            }
+        } finally {
+            download.close(); // Only now, after the upload consumed the stream
+        }
+    }
+
+    private String pipeToUpload(Exchange download, long length, String uploadUrl, String originalFilename) throws Exception {
+        String boundary = "---" + System.currentTimeMillis() + "---";
+        boolean[] bodySent = { false };
+        RequestWriter writer = conn -> {
+            if (bodySent[0]) {
+                throw new IOException("Upload of '" + originalFilename + "' was rejected after the download stream was consumed");
+            }
+            bodySent[0] = true;
+            try (InputStream in = openBody(download)) {
+                return writeMultipart(conn, boundary, originalFilename, in, length);
+            }
+        };
+        try (Exchange upload = send(uploadUrl, "POST", writer)) {
+            String body = readResponse(upload, false);
+            if (upload.code >= 300) {
+                throw new JiraApiException("Jira API request failed with code " + upload.code + ": " + body, upload.code);
+            }
+            return body;
+        }
+    }
+
+    private String cloneViaTempFile(Exchange download, String uploadUrl, String originalFilename) throws Exception {
+        File tempFile = File.createTempFile("jira-attachment-", ".tmp");
+        try {
+            try (InputStream in = openBody(download); OutputStream out = new FileOutputStream(tempFile)) {
+                copy(in, out);
+            }
+            download.close(); // The body is on disk; the upload may need this slot
+            return uploadAttachment(uploadUrl, tempFile, originalFilename);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes a single-file multipart body in fixed-length streaming mode, so the JDK sends it
+     * as it is written instead of buffering the whole request in memory.
+     * @return The number of body bytes written.
+     */
+    private static long writeMultipart(HttpsURLConnection conn, String boundary, String filename,
+                                       InputStream content, long contentLength) throws IOException {
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes("UTF-8");
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes("UTF-8");
+
         conn.setRequestMethod("POST");
         conn.setDoOutput(true);
-        
+        conn.setFixedLengthStreamingMode(head.length + contentLength + tail.length);
+
         // Set headers for multipart form data
         conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
         conn.setRequestProperty("X-Atlassian-Token", "no-check"); // Required for API uploads
 
-        try (OutputStream os = conn.getOutputStream(); FileInputStream fis = new FileInputStream(fileToUpload)) {
-            // Write the file part
-            os.write(("--" + boundary + "\r\n").getBytes("UTF-8"));
-            os.write(("Content-Disposition: form-data; name=\"file\"; filename=\"" + originalFilename + "\"\r\n").getBytes("UTF-8"));
-            os.write(("Content-Type: application/octet-stream\r\n\r\n").getBytes("UTF-8"));
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(head);
+            long copied = copy(content, os);
+            if (copied != contentLength) {
+                throw new IOException("Attachment size changed during transfer: expected " + contentLength + " bytes, got " + copied);
+            }
+            os.write(tail);
+        }
+        return head.length + contentLength + tail.length;
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        long total = 0;
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+            total += bytesRead;
+        }
+        return total;
+    }
+
+    // --- Transport: rate limiting, retries and connection slots ---
 
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                os.write(buffer, 0, bytesRead);
+    private static final int MAX_RETRIES = 4;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    /**
+     * Writes the method, headers and body of one request attempt. Called again on retry.
+     * Returns the number of body bytes written.
+     */
+    private interface RequestWriter {
+        long write(HttpsURLConnection conn) throws IOException;
+    }
+
+    /**
+     * A request whose status line has been received. Closing it frees the connection slot.
+     */
+    private final class Exchange implements AutoCloseable {
+        final HttpsURLConnection conn;
+        final int code;
+        final RequestMetrics.Call call;
+        private final String host;
+        private boolean released;
+
+        Exchange(HttpsURLConnection conn, int code, String host, RequestMetrics.Call call) {
+            this.conn = conn;
+            this.code = code;
+            this.host = host;
+            this.call = call;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                connectionPool.release(host);
+                call.end(code >= 400);
             }
-            os.flush();
-            
-            os.write(("\r\n--" + boundary + "--\r\n").getBytes("UTF-8"));
         }
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    public long getThrottledCount() {
+        return rateLimiter.getThrottledCount();
+    }
+
+    /**
+     * Sends one request through the rate limiter and a connection slot.
+     *
+     * 429 responses are retried for every method: the Jira rate limiter rejects the call
+     * before it is processed. 503 responses and I/O failures are only retried for requests
+     * that are safe to repeat (GET, HEAD and /search). Backoff is exponential with jitter,
+     * and never shorter than the server's Retry-After.
+     */
+    private Exchange send(String urlString, String method, RequestWriter writer) throws Exception {
+        URL url = new URL(urlString);
+        String host = url.getHost();
+        boolean idempotent = isIdempotent(method, url);
+        RequestMetrics.Call call = metrics.begin(method, url);
+        try {
+            return sendAttempts(url, host, method, writer, idempotent, call);
+        } catch (Exception | Error e) {
+            call.end(true);
+            throw e;
+        } finally {
+            if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+                responseCache.invalidateFor(urlString); // The issue may have changed, whatever the outcome
+            }
+        }
+    }
+
+    private Exchange sendAttempts(URL url, String host, String method, RequestWriter writer,
+                                  boolean idempotent, RequestMetrics.Call call) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            connectionPool.acquire(host);
+            boolean handedOff = false;
+            long retryAfterMillis = 0;
+            try {
+                HttpsURLConnection conn = openConnection(url);
+                int code;
+                try {
+                    if (writer != null) {
+                        call.addBytesSent(writer.write(conn));
+                    } else {
+                        conn.setRequestMethod(method);
+                    }
+                    code = conn.getResponseCode();
+                } catch (IOException ioe) {
+                    if (!idempotent || attempt >= MAX_RETRIES) throw ioe;
+                    code = -1;
+                }
+
+                if (code > 0) {
+                    call.onStatus(code);
+                    rateLimiter.onRateLimitHeaders(conn.getHeaderField("X-RateLimit-Remaining"),
+                            conn.getHeaderField("X-RateLimit-FillRate"),
+                            conn.getHeaderField("X-RateLimit-Interval-Seconds"));
+                }
+                boolean throttled = code == 429;
+                boolean retryable = throttled || ((code == 503 || code == -1) && idempotent);
+                if (throttled) {
+                    retryAfterMillis = parseRetryAfter(conn.getHeaderField("Retry-After"));
+                    rateLimiter.onThrottled(retryAfterMillis);
+                } else if (code > 0 && code < 300) {
+                    rateLimiter.onSuccess();
+                }
+
+                if (!retryable || attempt >= MAX_RETRIES) {
+                    handedOff = true;
+                    return new Exchange(conn, code, host, call);
+                }
+                if (code > 0) {
+                    if (code == 503) {
+                        retryAfterMillis = parseRetryAfter(conn.getHeaderField("Retry-After"));
+                    }
+                    readResponse(conn, code, call, false); // Discard the error body so the connection is reusable
+                }
+            } finally {
+                if (!handedOff) {
+                    connectionPool.release(host);
+                }
+            }
+
+            retriedCount.incrementAndGet();
+            call.onRetry();
+            Thread.sleep(Math.max(retryAfterMillis, backoffMillis(attempt)));
+        }
+    }
+
+    private static boolean isIdempotent(String method, URL url) {
+        if ("GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)) return true;
+        // POST /search is a read that only uses POST to carry a long JQL.
+        return "POST".equalsIgnoreCase(method) && url.getPath().endsWith("/rest/api/2/search");
+    }
+
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return java.util.concurrent.ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    /**
+     * Retry-After is either a number of seconds or an HTTP date.
+     */
+    private static long parseRetryAfter(String header) {
+        if (header == null || header.trim().isEmpty()) return 0;
+        String value = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException notSeconds) {
+            try {
+                long when = java.time.ZonedDateTime.parse(value, java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli();
+                return Math.max(0, when - System.currentTimeMillis());
+            } catch (java.time.format.DateTimeParseException badDate) {
+                return 0;
+            }
+        }
+    }
+
+    private HttpsURLConnection openConnection(URL url) throws IOException {
+        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
+        // Must be the same factory instance every time, otherwise the JDK will not reuse the connection.
+        conn.setSSLSocketFactory(connectionPool.getSocketFactory());
+        return conn;
+    }
+
+    private long sendJson(HttpsURLConnection conn, String method, String jsonBody) throws IOException {
+        conn.setRequestMethod(method);
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Accept", "application/json");
+        conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+        if (("POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)) && jsonBody != null) {
+            conn.setDoOutput(true);
+            byte[] bytes = jsonBody.getBytes("UTF-8");
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+            return bytes.length;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the success or error body, decoded according to Content-Encoding, or null when
+     * there is no body. Bytes are counted both as received on the wire and after decoding.
+     */
+    private InputStream openBody(Exchange ex) throws IOException {
+        return openBody(ex.conn, ex.code, ex.call);
+    }
+
+    private InputStream openBody(HttpsURLConnection conn, int code, RequestMetrics.Call call) throws IOException {
+        InputStream raw = (code >= 200 && code < 300) ? conn.getInputStream() : conn.getErrorStream();
+        if (raw == null) return null;
+
+        InputStream wire = new CountingInputStream(raw, n -> {
+            wireBytesReceived.addAndGet(n);
+            call.addBytesReceived(n);
+        });
+        String encoding = conn.getContentEncoding();
+        InputStream decoded;
+        if (encoding == null || encoding.trim().isEmpty() || "identity".equalsIgnoreCase(encoding.trim())) {
+            return new CountingInputStream(wire, decodedBytesReceived::addAndGet);
+        } else if ("gzip".equalsIgnoreCase(encoding.trim()) || "x-gzip".equalsIgnoreCase(encoding.trim())) {
+            decoded = new java.util.zip.GZIPInputStream(wire, 8192);
+        } else if ("deflate".equalsIgnoreCase(encoding.trim())) {
+            // "deflate" is meant to be zlib-wrapped, but some servers send a raw stream. Check the header.
+            PushbackInputStream peek = new PushbackInputStream(wire, 2);
+            int b0 = peek.read();
+            int b1 = b0 < 0 ? -1 : peek.read();
+            if (b1 >= 0) peek.unread(b1);
+            if (b0 >= 0) peek.unread(b0);
+            boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+            decoded = new java.util.zip.InflaterInputStream(peek, new java.util.zip.Inflater(!zlib), 8192);
+        } else {
+            throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+        return new CountingInputStream(decoded, decodedBytesReceived::addAndGet);
+    }
+
+    /** Bytes of response bodies as received, before decompression. */
+    public long getWireBytesReceived() {
+        return wireBytesReceived.get();
+    }
+
+    /** Bytes of response bodies after decompression. Equal to the wire count for uncompressed bodies. */
+    public long getDecodedBytesReceived() {
+        return decodedBytesReceived.get();
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final java.util.function.LongConsumer counter;
+
+        CountingInputStream(InputStream in, java.util.function.LongConsumer counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.accept(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) counter.accept(n);
+            return n;
+        }
+    }
+
+    private static void drain(InputStream is) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (is.read(buffer) != -1) {
+            // Discard trailing bytes so the connection can be reused.
+        }
+    }
+
+    /**
+     * Reads the success or error body to the end and closes the stream, which hands the
+     * underlying connection back to the keep-alive cache instead of tearing it down.
+     */
+    private String readResponse(Exchange ex, boolean keepLineBreaks) throws IOException {
+        return readResponse(ex.conn, ex.code, ex.call, keepLineBreaks);
+    }
+
+    private String readResponse(HttpsURLConnection conn, int code, RequestMetrics.Call call, boolean keepLineBreaks) throws IOException {
+        InputStream is = openBody(conn, code, call);
 
-        int code = conn.getResponseCode();
-        InputStream is = (code >= 200 && code < 300) ? conn.getInputStream() : conn.getErrorStream();
-        
         StringBuilder sb = new StringBuilder();
         if (is != null) {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     sb.append(line);
+                    if (keepLineBreaks) sb.append("\n");
                 }
             }
         }
-
-        if (code >= 300) {
-            throw new Exception("Jira API request failed with code " + code + ": " + sb.toString());
-        }
-
         return sb.toString();
     }
 
@@ -0,0 +1,155 @@
+package tso.usmc.jira.service;
+
+import tso.usmc.jira.util.JiraUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Exports every result of a JQL query to a CSV or JSON Lines file.
+ *
+ * Pages come from PaginatedSearch and each issue is written to a buffered file writer as soon
+ * as it arrives, so memory use does not depend on the size of the result. The file is written
+ * next to the target as ".part" and only renamed once the export completed.
+ */
+public class JqlExporter {
+
+    public enum Format { CSV, JSONL }
+
+    /**
+     * Called on the exporting thread every PROGRESS_INTERVAL issues and once at the end.
+     */
+    public interface ProgressListener {
+        void onProgress(int exported);
+    }
+
+    private static final int PAGE_SIZE = 100;
+    private static final int PROGRESS_INTERVAL = 500;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final JiraApiService service;
+    private final String searchUrl;
+
+    /**
+     * @param searchUrl Full URL of the /rest/api/2/search endpoint.
+     */
+    public JqlExporter(JiraApiService service, String searchUrl) {
+        this.service = service;
+        this.searchUrl = searchUrl;
+    }
+
+    /**
+     * @param fields Field ids to export ("key" is allowed), or null for all fields of each issue.
+     *               For CSV without fields the columns are those of the first issue.
+     * @return The number of issues written.
+     */
+    public int export(String jql, String[] fields, Format format, File target, ProgressListener listener) throws Exception {
+        JSONObject payload = new JSONObject();
+        payload.put("jql", jql);
+        if (fields != null) {
+            payload.put("fields", new JSONArray(fields));
+        }
+        // Without an explicit ordering the order does not matter, so page by id and avoid deep offsets.
+        PaginatedSearch.Mode mode = PaginatedSearch.orderByStart(jql) >= 0 ? PaginatedSearch.Mode.OFFSET : PaginatedSearch.Mode.AUTO;
+        PaginatedSearch search = new PaginatedSearch(service, searchUrl, mode);
+
+        File part = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".part");
+        final String[][] columns = { fields };
+        final int[] exported = { 0 };
+        boolean completed = false;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(part.toPath()),
+                StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            if (format == Format.CSV && fields != null) {
+                writeCsvRow(out, Arrays.asList(fields));
+            }
+            search.run(payload, PAGE_SIZE, issue -> {
+                if (format == Format.JSONL) {
+                    writeJsonLine(out, issue);
+                } else {
+                    if (columns[0] == null) {
+                        columns[0] = columnsOf(issue);
+                        writeCsvRow(out, Arrays.asList(columns[0]));
+                    }
+                    List<String> values = new ArrayList<>(columns[0].length);
+                    for (String column : columns[0]) {
+                        values.add(JiraUtils.getFieldValue(issue, column));
+                    }
+                    writeCsvRow(out, values);
+                }
+                if (++exported[0] % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.onProgress(exported[0]);
+                }
+            });
+            completed = true;
+        } finally {
+            if (!completed) {
+                part.delete();
+            }
+        }
+        Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (listener != null) {
+            listener.onProgress(exported[0]);
+        }
+        return exported[0];
+    }
+
+    private static String[] columnsOf(JSONObject issue) {
+        List<String> names = new ArrayList<>();
+        names.add("key");
+        JSONObject fields = issue.optJSONObject("fields");
+        if (fields != null) {
+            names.addAll(fields.keySet());
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * One object per line: the key and the raw fields as Jira returned them.
+     */
+    private static void writeJsonLine(Writer out, JSONObject issue) throws IOException {
+        JSONObject line = new JSONObject();
+        line.put("key", issue.optString("key"));
+        line.put("id", issue.optString("id"));
+        line.put("fields", issue.optJSONObject("fields") == null ? new JSONObject() : issue.getJSONObject("fields"));
+        line.write(out);
+        out.write('\n');
+    }
+
+    private static void writeCsvRow(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.write(',');
+            writeCsvValue(out, values.get(i));
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * RFC 4180 quoting: values with a comma, quote or line break are quoted, quotes doubled.
+     */
+    private static void writeCsvValue(Writer out, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
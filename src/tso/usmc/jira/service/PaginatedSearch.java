@@ -0,0 +1,239 @@
+package tso.usmc.jira.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.json.JSONObject;
+
+/**
+ * Runs a /rest/api/2/search query across all of its pages.
+ *
+ * OFFSET mode keeps the query's own ordering. The first page is streamed straight to the
+ * consumer and tells us the total. The remaining startAt offsets are then fetched concurrently
+ * on the service's request pool, at most a small window of pages ahead of the consumer, and
+ * delivered strictly in page order.
+ *
+ * KEYSET mode replaces the ORDER BY with "ORDER BY id ASC" and asks for each next page with
+ * "id > lastSeen" instead of a startAt offset. Jira then never has to skip over earlier
+ * results, so every page costs the same, and issues created, deleted or changed during the
+ * scan cannot make it skip or repeat an issue. Pages are necessarily fetched one after another.
+ *
+ * AUTO mode also orders by id. Up to the service's keyset threshold it fans out offsets like
+ * OFFSET mode, but each page starts one issue early so that it repeats the last issue of the
+ * page before. When that issue is not where it was, deletions moved issues into pages already
+ * fetched, and the gap is re-read by id; a last keyset query picks up issues pushed past the
+ * final page. Above the threshold it pages by keyset.
+ *
+ * The consumer is always called on the thread that called run(), so it needs no synchronization.
+ */
+public class PaginatedSearch {
+
+    public enum Mode { OFFSET, KEYSET, AUTO }
+
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\bORDER\\s+BY\\b");
+
+    private final JiraApiService service;
+    private final String searchUrl;
+    private final Mode mode;
+    private final int window;
+
+    /**
+     * @param searchUrl Full URL of the /rest/api/2/search endpoint.
+     */
+    public PaginatedSearch(JiraApiService service, String searchUrl) {
+        this(service, searchUrl, Mode.OFFSET);
+    }
+
+    public PaginatedSearch(JiraApiService service, String searchUrl, Mode mode) {
+        this.service = service;
+        this.searchUrl = searchUrl;
+        this.mode = mode;
+        this.window = Math.max(1, service.getMaxInFlight() * 2);
+    }
+
+    /**
+     * Delivers every issue matching the payload's JQL, in order.
+     * @param payload Search payload without startAt/maxResults (jql, fields, expand...).
+     * @param pageSize Issues requested per page. Jira may return fewer.
+     * @return The number of issues delivered.
+     */
+    public int run(JSONObject payload, int pageSize, SearchStreamReader.IssueCallback consumer) throws Exception {
+        if (mode == Mode.OFFSET) {
+            return runOffsets(payload, pageSize, consumer);
+        }
+
+        String jql = payload.optString("jql", "");
+        int orderBy = orderByStart(jql);
+        if (orderBy >= 0) {
+            jql = jql.substring(0, orderBy).trim();
+        }
+        long[] lastId = { Long.MIN_VALUE };
+        if (mode == Mode.AUTO) {
+            // Ordered by id, so the keyset can take over where the offset pages left off.
+            JSONObject byId = new JSONObject(payload.toString()).put("jql", keysetJql(jql, null, null));
+            SearchStreamReader.PageInfo first = service.streamSearch(searchUrl, pagePayload(byId, 0, pageSize), issue -> {
+                lastId[0] = Long.parseLong(issue.getString("id"));
+                consumer.onIssue(issue);
+            });
+            if (first.count == 0 || first.total <= first.count) {
+                return first.count;
+            }
+            if (first.total <= service.getKeysetThreshold() && first.count > 1) {
+                int delivered = first.count + runRemainingOffsets(byId, first, consumer, jql, lastId);
+                return delivered + runKeyset(payload, jql, first.count, consumer, lastId, null);
+            }
+            return first.count + runKeyset(payload, jql, pageSize, consumer, lastId, null);
+        }
+        return runKeyset(payload, jql, pageSize, consumer, lastId, null);
+    }
+
+    /**
+     * Delivers the issues with lastId < id < beforeId (no upper bound when null) in id order,
+     * and advances lastId past each of them.
+     */
+    private int runKeyset(JSONObject payload, String jql, int pageSize, SearchStreamReader.IssueCallback consumer,
+                          long[] lastId, Long beforeId) throws Exception {
+        int delivered = 0;
+        while (true) {
+            String pageJql = keysetJql(jql, lastId[0] == Long.MIN_VALUE ? null : lastId[0], beforeId);
+            JSONObject page = new JSONObject(payload.toString()).put("jql", pageJql);
+            SearchStreamReader.PageInfo info = service.streamSearch(searchUrl, pagePayload(page, 0, pageSize), issue -> {
+                lastId[0] = Long.parseLong(issue.getString("id"));
+                consumer.onIssue(issue);
+            });
+            delivered += info.count;
+            // total counts what is left after lastSeen, so the last page is the one that holds all of it.
+            if (info.count == 0 || (info.total >= 0 && info.total <= info.count)) {
+                return delivered;
+            }
+        }
+    }
+
+    static String keysetJql(String jql, Long afterId, Long beforeId) {
+        StringBuilder sb = new StringBuilder();
+        if (!jql.isEmpty()) {
+            sb.append('(').append(jql).append(')');
+        }
+        if (afterId != null) {
+            if (sb.length() > 0) sb.append(" AND ");
+            sb.append("id > ").append(afterId);
+        }
+        if (beforeId != null) {
+            if (sb.length() > 0) sb.append(" AND ");
+            sb.append("id < ").append(beforeId);
+        }
+        if (sb.length() > 0) sb.append(' ');
+        return sb.append("ORDER BY id ASC").toString();
+    }
+
+    /**
+     * Where the query's ORDER BY clause starts, or -1. "order by" inside a quoted value, as in
+     * summary ~ "sort order by date", is not a clause.
+     */
+    static int orderByStart(String jql) {
+        Matcher m = ORDER_BY.matcher(jql);
+        int start = -1;
+        int scanned = 0;
+        char quote = 0;
+        while (m.find()) {
+            for (; scanned < m.start(); scanned++) {
+                char c = jql.charAt(scanned);
+                if (quote != 0) {
+                    if (c == '\\') scanned++; // The escaped character cannot end the value
+                    else if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                }
+            }
+            if (quote == 0 && scanned == m.start()) {
+                start = m.start(); // JQL allows one ORDER BY, at the end; the last one outside quotes wins
+            }
+        }
+        return start;
+    }
+
+    private int runOffsets(JSONObject payload, int pageSize, SearchStreamReader.IssueCallback consumer) throws Exception {
+        SearchStreamReader.PageInfo first = service.streamSearch(searchUrl, pagePayload(payload, 0, pageSize), consumer);
+        if (first.count == 0 || first.total <= first.count) {
+            return first.count;
+        }
+        return first.count + runRemainingOffsets(payload, first, consumer, null, null);
+    }
+
+    /**
+     * Fetches every page after the first concurrently and delivers them in order. When lastId
+     * is given the query is ordered by id (jql is the query without its ORDER BY): pages then
+     * overlap by one issue, issues that moved into a later page are skipped, and issues that
+     * moved into a page already fetched are re-read by id.
+     */
+    private int runRemainingOffsets(JSONObject payload, SearchStreamReader.PageInfo first,
+                                    SearchStreamReader.IssueCallback consumer, String jql, long[] lastId) throws Exception {
+        int delivered = 0;
+        // Jira caps maxResults server-side; the first page shows the size we really get.
+        int step = first.count;
+        int advance = lastId != null ? step - 1 : step;
+        int total = first.total;
+
+        Deque<CompletableFuture<List<JSONObject>>> pending = new ArrayDeque<>();
+        int nextOffset = advance;
+        try {
+            while (nextOffset < total || !pending.isEmpty()) {
+                while (nextOffset < total && pending.size() < window) {
+                    String body = pagePayload(payload, nextOffset, step);
+                    pending.add(service.submit(() -> fetchPage(body)));
+                    nextOffset += advance;
+                }
+                List<JSONObject> page = await(pending.poll());
+                if (lastId != null && !page.isEmpty()) {
+                    long firstId = Long.parseLong(page.get(0).getString("id"));
+                    if (firstId > lastId[0]) {
+                        // The issue this page should repeat moved back: something before it was deleted.
+                        delivered += runKeyset(payload, jql, step, consumer, lastId, firstId);
+                    }
+                }
+                for (JSONObject issue : page) {
+                    if (lastId != null) {
+                        long id = Long.parseLong(issue.getString("id"));
+                        if (id <= lastId[0]) continue;
+                        lastId[0] = id;
+                    }
+                    consumer.onIssue(issue);
+                    delivered++;
+                }
+            }
+        } finally {
+            for (CompletableFuture<List<JSONObject>> f : pending) {
+                f.cancel(false); // Only reached when a page or the consumer failed
+            }
+        }
+        return delivered;
+    }
+
+    private List<JSONObject> fetchPage(String body) throws Exception {
+        List<JSONObject> issues = new ArrayList<>();
+        service.streamSearch(searchUrl, body, issues::add);
+        return issues;
+    }
+
+    private static String pagePayload(JSONObject payload, int startAt, int maxResults) {
+        JSONObject page = new JSONObject(payload.toString());
+        page.put("startAt", startAt);
+        page.put("maxResults", maxResults);
+        return page.toString();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package tso.usmc.jira.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side token bucket that adapts to the Jira rate limiter.
+ *
+ * The rate starts at the configured ceiling. A 429 halves it and empties the bucket; every
+ * successful request nudges it back up (additive increase, multiplicative decrease), so
+ * throughput settles just below the point where the server starts rejecting. A Retry-After
+ * header pauses all callers until the given time, and the X-RateLimit-FillRate and
+ * X-RateLimit-Interval-Seconds headers sent by Jira Data Center cap the ceiling at the
+ * rate the server actually grants.
+ */
+public class RateLimiter {
+
+    public static final double DEFAULT_MAX_RATE = 20.0;
+    private static final double MIN_RATE = 0.5;
+    private static final double INCREASE_PER_SUCCESS = 0.1;
+
+    private final double configuredMaxRate;
+    private double maxRate;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilMillis;
+
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong waitedMillis = new AtomicLong();
+
+    /**
+     * @param maxRatePerSecond Requests per second the client never exceeds. 0 or less disables limiting.
+     */
+    public RateLimiter(double maxRatePerSecond) {
+        this.configuredMaxRate = maxRatePerSecond;
+        this.maxRate = maxRatePerSecond;
+        this.rate = maxRatePerSecond;
+        this.tokens = Math.max(1, maxRatePerSecond);
+    }
+
+    public boolean isEnabled() {
+        return configuredMaxRate > 0;
+    }
+
+    /**
+     * Blocks until the caller may send one request.
+     */
+    public void acquire() throws InterruptedException {
+        if (!isEnabled()) return;
+        while (true) {
+            long waitMillis;
+            synchronized (this) {
+                refill();
+                long now = System.currentTimeMillis();
+                if (pausedUntilMillis > now) {
+                    waitMillis = pausedUntilMillis - now;
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                } else {
+                    waitMillis = (long) Math.ceil((1 - tokens) * 1000.0 / rate);
+                }
+            }
+            waitMillis = Math.max(1, waitMillis);
+            waitedMillis.addAndGet(waitMillis);
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        double burst = Math.max(1, rate);
+        tokens = Math.min(burst, tokens + elapsedSeconds * rate);
+    }
+
+    /**
+     * Records a 429 response. retryAfterMillis is the server's Retry-After, or 0 when absent.
+     */
+    public synchronized void onThrottled(long retryAfterMillis) {
+        throttledCount.incrementAndGet();
+        if (!isEnabled()) return;
+        refill();
+        rate = Math.max(MIN_RATE, rate / 2);
+        tokens = 0;
+        if (retryAfterMillis > 0) {
+            pausedUntilMillis = Math.max(pausedUntilMillis, System.currentTimeMillis() + retryAfterMillis);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (!isEnabled()) return;
+        rate = Math.min(maxRate, rate + INCREASE_PER_SUCCESS);
+    }
+
+    /**
+     * Applies the X-RateLimit-* headers of a response. Missing headers are passed as null.
+     */
+    public synchronized void onRateLimitHeaders(String remaining, String fillRate, String intervalSeconds) {
+        if (!isEnabled()) return;
+        try {
+            if (fillRate != null && intervalSeconds != null) {
+                double serverRate = Double.parseDouble(fillRate.trim()) / Math.max(1, Double.parseDouble(intervalSeconds.trim()));
+                if (serverRate > 0) {
+                    maxRate = Math.max(MIN_RATE, Math.min(configuredMaxRate, serverRate));
+                    rate = Math.min(rate, maxRate);
+                }
+            }
+            if (remaining != null && Integer.parseInt(remaining.trim()) <= 0) {
+                tokens = Math.min(tokens, 0);
+            }
+        } catch (NumberFormatException ignored) {
+            // Unexpected header format; keep adapting from 429s alone.
+        }
+    }
+
+    public synchronized double getCurrentRate() {
+        return rate;
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getWaitedMillis() {
+        return waitedMillis.get();
+    }
+}
@@ -0,0 +1,202 @@
+package tso.usmc.jira.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * The Jira side of a reconciliation, kept between runs: the parents (input keys and their
+ * stories) with their summaries, and the ISPW-related sub-tasks under them.
+ *
+ * One snapshot exists per set of input keys, in the order-independent file
+ * recon-{hash}.json. The caller refreshes it with searches for what was updated since
+ * getLastSync() and saves it; with no directory it lives for the session only.
+ */
+public class ReconciliationSnapshot {
+
+    /** One sub-task as reconciliation sees it. */
+    public static final class Task {
+        private final String key;
+        private final String name;
+        private final String parentKey;
+        private final String assignee;
+        private final String status;
+
+        /**
+         * @param name The normalized summary the task is matched on, e.g. "COB PGM001".
+         */
+        public Task(String key, String name, String parentKey, String assignee, String status) {
+            this.key = key;
+            this.name = name;
+            this.parentKey = parentKey;
+            this.assignee = assignee;
+            this.status = status;
+        }
+
+        public String getKey() { return key; }
+        public String getName() { return name; }
+        public String getParentKey() { return parentKey; }
+        public String getAssignee() { return assignee; }
+        public String getStatus() { return status; }
+    }
+
+    private final File file;
+    private final Set<String> topKeys;
+    private final Map<String, String> parentSummaries = new LinkedHashMap<>();
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private long lastSync;
+
+    private ReconciliationSnapshot(File file, Set<String> topKeys) {
+        this.file = file;
+        this.topKeys = topKeys;
+    }
+
+    /**
+     * Loads the snapshot of the input keys, or starts an empty one.
+     * @param dir Directory of the snapshots, or null to keep it in memory.
+     */
+    public static ReconciliationSnapshot open(File dir, Collection<String> topKeys) {
+        Set<String> keys = Collections.unmodifiableSet(new TreeSet<>(topKeys));
+        File file = dir == null ? null : new File(dir, "recon-" + fingerprint(keys) + ".json");
+        ReconciliationSnapshot snapshot = new ReconciliationSnapshot(file, keys);
+        if (file != null && file.isFile()) {
+            try {
+                snapshot.load();
+            } catch (Exception e) {
+                System.err.println("Ignoring unreadable reconciliation snapshot: " + e.getMessage());
+                snapshot.clear(); // Next refresh is a full one
+            }
+        }
+        return snapshot;
+    }
+
+    public boolean isFor(Collection<String> keys) {
+        return topKeys.equals(new TreeSet<>(keys));
+    }
+
+    /**
+     * True until the first complete fetch was recorded.
+     */
+    public boolean isEmpty() {
+        return lastSync == 0;
+    }
+
+    /**
+     * When the search of the last refresh started, in epoch millis; 0 for an empty snapshot.
+     */
+    public long getLastSync() {
+        return lastSync;
+    }
+
+    public void setLastSync(long lastSync) {
+        this.lastSync = lastSync;
+    }
+
+    public void clear() {
+        parentSummaries.clear();
+        tasks.clear();
+        lastSync = 0;
+    }
+
+    /**
+     * A copy of the parent summaries; it does not change when the snapshot does.
+     */
+    public Map<String, String> getParentSummaries() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(parentSummaries));
+    }
+
+    public void putParent(String key, String summary) {
+        parentSummaries.put(key, summary);
+    }
+
+    public Collection<Task> getTasks() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    /**
+     * @return The task it replaces, or null.
+     */
+    public Task putTask(Task task) {
+        return tasks.put(task.getKey(), task);
+    }
+
+    /**
+     * @return The removed task, or null.
+     */
+    public Task removeTask(String key) {
+        return tasks.remove(key);
+    }
+
+    /**
+     * Writes the snapshot to its file, through a temp file so a crash leaves the old one.
+     */
+    public void save() throws IOException {
+        if (file == null) return;
+        file.getParentFile().mkdirs();
+        JSONObject json = new JSONObject();
+        json.put("topKeys", new JSONArray(topKeys));
+        json.put("lastSync", lastSync);
+        json.put("parents", new JSONObject(parentSummaries));
+        JSONArray taskArray = new JSONArray();
+        for (Task t : tasks.values()) {
+            taskArray.put(new JSONArray().put(t.key).put(t.name).put(t.parentKey).put(t.assignee).put(t.status));
+        }
+        json.put("tasks", taskArray);
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            json.write(out);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void load() throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(in));
+            if (!topKeys.equals(new TreeSet<>(json.getJSONArray("topKeys").toList()))) {
+                return; // Hash collision: not ours, start empty
+            }
+            JSONObject parents = json.getJSONObject("parents");
+            for (String key : parents.keySet()) {
+                parentSummaries.put(key, parents.getString(key));
+            }
+            JSONArray taskArray = json.getJSONArray("tasks");
+            for (int i = 0; i < taskArray.length(); i++) {
+                JSONArray t = taskArray.getJSONArray(i);
+                putTask(new Task(t.getString(0), t.getString(1), t.getString(2), t.getString(3), t.getString(4)));
+            }
+            lastSync = json.getLong("lastSync");
+        }
+    }
+
+    private static String fingerprint(Set<String> keys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join(",", keys).getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package tso.usmc.jira.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.json.JSONObject;
+
+/**
+ * Per-endpoint request statistics for JiraApiService.
+ *
+ * Requests are grouped by method and a path template in which issue keys and numeric ids
+ * are replaced; the API version after "api", "agile" and the like stays as it is. So
+ * "GET /rest/api/2/issue/ABC-12/transitions" and the same call for any other issue land in
+ * one "GET /rest/api/2/issue/{key}/transitions" bucket. Every counter is a LongAdder or
+ * atomic, so recording never takes a lock on the request path.
+ *
+ * Latency is measured from the first attempt until the response body has been consumed,
+ * retries and backoff included, and kept in a log-linear histogram (at most 12.5% error).
+ */
+public class RequestMetrics {
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("[A-Za-z][A-Za-z0-9_]*-\\d+");
+    private static final Pattern NUMERIC_ID = Pattern.compile("\\d+");
+    /** Path segments followed by an API version rather than an id, as in /rest/api/2/... */
+    private static final Set<String> VERSIONED = new HashSet<>(
+            Arrays.asList("api", "agile", "auth", "greenhopper", "servicedeskapi"));
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final long startedMillis = System.currentTimeMillis();
+
+    /**
+     * Returns the template a request is recorded under, e.g. "GET /rest/api/2/issue/{key}".
+     */
+    public static String template(String method, URL url) {
+        String[] segments = url.getPath().split("/", -1);
+        StringBuilder sb = new StringBuilder(method.toUpperCase()).append(' ');
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) sb.append('/');
+            String segment = segments[i];
+            if (ISSUE_KEY.matcher(segment).matches()) {
+                sb.append("{key}");
+            } else if (NUMERIC_ID.matcher(segment).matches() && !(i > 0 && VERSIONED.contains(segments[i - 1]))) {
+                sb.append("{id}");
+            } else {
+                sb.append(segment);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Starts timing one logical request. The returned call must be ended exactly once.
+     */
+    public Call begin(String method, URL url) {
+        Endpoint endpoint = endpoints.computeIfAbsent(template(method, url), Endpoint::new);
+        endpoint.inFlight.incrementAndGet();
+        return new Call(endpoint);
+    }
+
+    public Endpoint getEndpoint(String template) {
+        return endpoints.get(template);
+    }
+
+    /**
+     * All endpoints seen so far, sorted by template.
+     */
+    public List<Endpoint> getEndpoints() {
+        List<Endpoint> list = new ArrayList<>(endpoints.values());
+        Collections.sort(list, (a, b) -> a.template.compareTo(b.template));
+        return list;
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    public JSONObject snapshot() {
+        JSONObject root = new JSONObject();
+        root.put("capturedAt", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date()));
+        root.put("uptimeMillis", System.currentTimeMillis() - startedMillis);
+        JSONObject byEndpoint = new JSONObject();
+        for (Endpoint endpoint : getEndpoints()) {
+            byEndpoint.put(endpoint.template, endpoint.toJson());
+        }
+        root.put("endpoints", byEndpoint);
+        return root;
+    }
+
+    /**
+     * Writes snapshot() as JSON, for comparing runs before and after a change.
+     */
+    public void writeSnapshot(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), "UTF-8")) {
+            snapshot().write(writer, 2, 0);
+        }
+    }
+
+    /**
+     * Statistics for one endpoint template.
+     */
+    public static final class Endpoint {
+        private final String template;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final Histogram latency = new Histogram();
+
+        Endpoint(String template) {
+            this.template = template;
+        }
+
+        public String getTemplate() { return template; }
+        public long getRequests() { return requests.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public long getRetries() { return retries.sum(); }
+        public long getBytesSent() { return bytesSent.sum(); }
+        public long getBytesReceived() { return bytesReceived.sum(); }
+        public int getInFlight() { return inFlight.get(); }
+
+        /** Number of responses per HTTP status, retried attempts included. */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new java.util.TreeMap<>();
+            statusCounts.forEach((code, n) -> counts.put(code, n.sum()));
+            return counts;
+        }
+
+        public double getMeanMillis() {
+            long n = requests.sum();
+            return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+        }
+
+        /** Latency percentile in milliseconds, e.g. getPercentileMillis(95). */
+        public double getPercentileMillis(double percentile) {
+            return latency.percentile(percentile) / 1000.0;
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("requests", getRequests());
+            json.put("failures", getFailures());
+            json.put("retries", getRetries());
+            json.put("inFlight", getInFlight());
+            json.put("bytesSent", getBytesSent());
+            json.put("bytesReceived", getBytesReceived());
+            json.put("meanMillis", round(getMeanMillis()));
+            json.put("p50Millis", round(getPercentileMillis(50)));
+            json.put("p95Millis", round(getPercentileMillis(95)));
+            json.put("p99Millis", round(getPercentileMillis(99)));
+            json.put("maxMillis", round(latency.max() / 1000.0));
+            JSONObject statuses = new JSONObject();
+            getStatusCounts().forEach((code, n) -> statuses.put(String.valueOf(code), n));
+            json.put("status", statuses);
+            return json;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+
+    /**
+     * One logical request, possibly spanning several attempts.
+     */
+    public static final class Call {
+        private final Endpoint endpoint;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger ended = new AtomicInteger();
+
+        Call(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public void onStatus(int code) {
+            endpoint.statusCounts.computeIfAbsent(code, c -> new LongAdder()).increment();
+        }
+
+        public void onRetry() {
+            endpoint.retries.increment();
+        }
+
+        public void addBytesSent(long n) {
+            endpoint.bytesSent.add(n);
+        }
+
+        public void addBytesReceived(long n) {
+            endpoint.bytesReceived.add(n);
+        }
+
+        /**
+         * Stops the clock. failed marks transport errors and error statuses. Later calls are ignored.
+         */
+        public void end(boolean failed) {
+            if (ended.getAndIncrement() != 0) return;
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            endpoint.inFlight.decrementAndGet();
+            endpoint.requests.increment();
+            endpoint.totalMicros.add(micros);
+            endpoint.latency.record(micros);
+            if (failed) endpoint.failures.increment();
+        }
+    }
+
+    /**
+     * Log-linear histogram: values below 8 get their own bucket, above that each power of two
+     * is split into 8 equal sub-buckets.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS);
+        private final java.util.concurrent.atomic.AtomicLong max = new java.util.concurrent.atomic.AtomicLong();
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            counts.incrementAndGet(indexOf(v));
+            long current;
+            while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+                // Retry until our value is stored or a larger one wins
+            }
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /** Returns the midpoint of the bucket holding the given percentile, or 0 when empty. */
+        double percentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(max.get(), lowerBound(i) + (width(i) - 1) / 2.0);
+                }
+            }
+            return max.get();
+        }
+
+        private static int indexOf(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+            return SUB_BUCKETS + (exp - SUB_BITS) * SUB_BUCKETS + sub;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int exp = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+        }
+
+        private static long width(int index) {
+            if (index < SUB_BUCKETS) return 1;
+            int exp = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            return 1L << (exp - SUB_BITS);
+        }
+    }
+}
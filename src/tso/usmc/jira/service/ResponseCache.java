@@ -0,0 +1,343 @@
+package tso.usmc.jira.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Cache for GET responses of the Jira REST API.
+ *
+ * Entries live in a memory tier bounded by size with LRU eviction, and optionally in a disk
+ * tier (one file per URL) that survives restarts. An entry that came with an ETag or
+ * Last-Modified header is revalidated with a conditional GET on every use, so it is never
+ * stale and a 304 saves the body transfer. Without validators only metadata (fields, issue
+ * types, statuses, transitions and the like) is cached, served as-is for the TTL and refetched
+ * afterwards; issues and searches change too often to be served unchecked, so such responses
+ * are not stored at all.
+ *
+ * Jira marks its REST responses no-store. That is aimed at shared caches; this cache is
+ * private to one user's session, and the disk tier is off unless configured. The caller gives
+ * each identity its own disk directory; within it, every server gets a subdirectory.
+ *
+ * Any write through the same service to /rest/api/2/issue/{key}... drops every cached
+ * response of that issue.
+ */
+public class ResponseCache {
+
+    public static final int DEFAULT_MAX_MEMORY_MB = 32;
+    public static final int DEFAULT_TTL_SECONDS = 60;
+    public static final int DEFAULT_MAX_DISK_MB = 256;
+
+    private static final Pattern ISSUE_PATH = Pattern.compile("/rest/api/[^/]+/issue/([^/?#]+)");
+    private static final Pattern METADATA_PATH = Pattern.compile("/rest/api/[^/]+/(?:"
+            + "(?:field|issuetype|priority|status|statuscategory|resolution|issueLinkType|project|serverInfo)"
+            + "|issue/createmeta|issue/[^/?#]+/transitions)(?:[/?#]|$)");
+
+    /**
+     * A cached response body and the validators needed to revalidate it.
+     */
+    public static final class Entry {
+        final String url;
+        final String body;
+        final String etag;
+        final String lastModified;
+        final String issue;
+        final boolean metadata;
+        volatile long storedAt;
+
+        Entry(String url, String body, String etag, String lastModified, long storedAt) {
+            this.url = url;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.issue = issueOf(url);
+            this.metadata = METADATA_PATH.matcher(url).find();
+            this.storedAt = storedAt;
+        }
+
+        public String getBody() { return body; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        long sizeInBytes() {
+            return 2L * (url.length() + body.length()) + 128;
+        }
+    }
+
+    private final long maxMemoryBytes;
+    private final long ttlMillis;
+    private final File diskDir;
+    private final long maxDiskBytes;
+
+    private static final Pattern ORIGIN = Pattern.compile("^[A-Za-z][A-Za-z0-9+.-]*://([^/?#]+)");
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskWrites = new AtomicLong();
+
+    /**
+     * @param diskDir Directory for the disk tier, or null to keep everything in memory. Must not
+     *                be shared by different identities.
+     */
+    public ResponseCache(long maxMemoryBytes, long ttlMillis, File diskDir, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.ttlMillis = ttlMillis;
+        this.diskDir = diskDir;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDir != null && !diskDir.exists()) {
+            diskDir.mkdirs();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxMemoryBytes > 0;
+    }
+
+    /**
+     * Looks up a URL in memory, then on disk. Returns null when nothing is cached.
+     */
+    public Entry get(String url) {
+        synchronized (this) {
+            Entry entry = memory.get(url);
+            if (entry != null) return entry;
+        }
+        Entry entry = readFromDisk(url);
+        if (entry != null) {
+            putInMemory(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * True when the entry may be used without asking the server.
+     */
+    public boolean isFresh(Entry entry) {
+        return !entry.hasValidators() && entry.metadata && System.currentTimeMillis() - entry.storedAt < ttlMillis;
+    }
+
+    /**
+     * Stores a response. Responses that could only be served by TTL are kept for metadata URLs
+     * only; any other response without an ETag or Last-Modified is dropped.
+     */
+    public void put(String url, String body, String etag, String lastModified) {
+        Entry entry = new Entry(url, body, etag, lastModified, System.currentTimeMillis());
+        if (!entry.hasValidators() && !entry.metadata) {
+            return;
+        }
+        if (entry.sizeInBytes() > maxMemoryBytes / 4) {
+            return; // One huge response should not flush everything else
+        }
+        putInMemory(entry);
+        writeToDisk(entry);
+    }
+
+    /**
+     * Records a 304: the cached body is still current.
+     */
+    public void onNotModified(Entry entry) {
+        entry.storedAt = System.currentTimeMillis();
+        revalidated.incrementAndGet();
+    }
+
+    public void onHit() {
+        hits.incrementAndGet();
+    }
+
+    public void onMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Drops every cached response of the issue a write URL refers to. Other URLs are ignored.
+     */
+    public void invalidateFor(String writeUrl) {
+        String issue = issueOf(writeUrl);
+        if (issue == null) return;
+        synchronized (this) {
+            Iterator<Entry> it = memory.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (issue.equals(entry.issue)) {
+                    memoryBytes -= entry.sizeInBytes();
+                    it.remove();
+                }
+            }
+        }
+        if (diskDir != null) {
+            String prefix = filePrefix(issue);
+            File[] files = serverDir(writeUrl).listFiles((dir, name) -> name.startsWith(prefix));
+            if (files == null) return;
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        if (diskDir != null) {
+            File[] servers = diskDir.listFiles(File::isDirectory);
+            if (servers == null) return;
+            for (File server : servers) {
+                File[] files = server.listFiles();
+                if (files != null) {
+                    for (File file : files) file.delete();
+                }
+            }
+        }
+    }
+
+    public String getStatistics() {
+        synchronized (this) {
+            return "Cache hits: " + hits.get()
+                    + " | Revalidated: " + revalidated.get()
+                    + " | Misses: " + misses.get()
+                    + " | Entries: " + memory.size()
+                    + " | Memory: " + (memoryBytes / 1024) + " KB";
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getRevalidated() { return revalidated.get(); }
+    public long getMisses() { return misses.get(); }
+
+    static String issueOf(String url) {
+        Matcher m = ISSUE_PATH.matcher(url);
+        return m.find() ? m.group(1).toUpperCase() : null;
+    }
+
+    private synchronized void putInMemory(Entry entry) {
+        Entry previous = memory.put(entry.url, entry);
+        if (previous != null) {
+            memoryBytes -= previous.sizeInBytes();
+        }
+        memoryBytes += entry.sizeInBytes();
+        Iterator<Entry> it = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            memoryBytes -= eldest.sizeInBytes();
+            it.remove();
+        }
+    }
+
+    // --- Disk tier ---
+
+    /**
+     * Files are named ISSUEKEY_hash.json (or _hash.json) in the directory of the URL's server,
+     * so invalidation needs no reads.
+     */
+    private File fileFor(String url) {
+        String issue = issueOf(url);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return new File(serverDir(url), filePrefix(issue) + sb + ".json");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private File serverDir(String url) {
+        Matcher m = ORIGIN.matcher(url);
+        String server = m.find() ? m.group(1).toLowerCase() : "other";
+        return new File(diskDir, server.replaceAll("[^a-z0-9._-]", "_"));
+    }
+
+    private static String filePrefix(String issue) {
+        return (issue == null ? "" : issue.replaceAll("[^A-Z0-9-]", "")) + "_";
+    }
+
+    private Entry readFromDisk(String url) {
+        if (diskDir == null) return null;
+        File file = fileFor(url);
+        if (!file.isFile()) return null;
+        Entry entry = readFile(file);
+        if (entry == null || !url.equals(entry.url)) return null;
+        file.setLastModified(System.currentTimeMillis()); // LRU order for disk eviction
+        return entry;
+    }
+
+    private static Entry readFile(File file) {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), "UTF-8")) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            return new Entry(json.getString("url"), json.getString("body"),
+                    json.optString("etag", null), json.optString("lastModified", null), json.getLong("storedAt"));
+        } catch (Exception e) {
+            return null; // Corrupt or half-written; treat as a miss
+        }
+    }
+
+    private void writeToDisk(Entry entry) {
+        if (diskDir == null) return;
+        JSONObject json = new JSONObject();
+        json.put("url", entry.url);
+        json.put("body", entry.body);
+        if (entry.etag != null) json.put("etag", entry.etag);
+        if (entry.lastModified != null) json.put("lastModified", entry.lastModified);
+        json.put("storedAt", entry.storedAt);
+
+        File target = fileFor(entry.url);
+        try {
+            target.getParentFile().mkdirs();
+            File temp = File.createTempFile("entry-", ".tmp", target.getParentFile());
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temp.toPath()), "UTF-8")) {
+                json.write(writer);
+            }
+            Files.move(temp.toPath(), target.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Could not write cache entry: " + e.getMessage());
+            return;
+        }
+        if (diskWrites.incrementAndGet() % 32 == 0) {
+            trimDisk();
+        }
+    }
+
+    private synchronized void trimDisk() {
+        List<File> found = new ArrayList<>();
+        File[] servers = diskDir.listFiles(File::isDirectory);
+        if (servers == null) return;
+        for (File server : servers) {
+            File[] files = server.listFiles((dir, name) -> name.endsWith(".json"));
+            if (files != null) found.addAll(Arrays.asList(files));
+        }
+        File[] files = found.toArray(new File[0]);
+        long total = 0;
+        for (File file : files) total += file.length();
+        if (total <= maxDiskBytes) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= maxDiskBytes) break;
+            total -= file.length();
+            file.delete();
+        }
+    }
+}
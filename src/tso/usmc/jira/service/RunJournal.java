@@ -0,0 +1,246 @@
+package tso.usmc.jira.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only journal of a bulk run, so an interrupted run can be resumed without redoing
+ * (or duplicating) the operations that already went through.
+ *
+ * A run is identified by its kind and the ordered list of its operation ids, so running the
+ * same plan again finds the journal the earlier attempt left behind. Each line records one
+ * event: "B id" when a non-idempotent operation is about to be sent, "F id" when it was
+ * rejected, "D id result" when an operation succeeded. Records reach the operating system immediately, which is enough to
+ * survive an application crash; they are forced to disk every FSYNC_BATCH completions or
+ * FSYNC_INTERVAL_MS, and begin records always, so a power loss costs at most one batch.
+ * The journal is deleted when the run finishes.
+ */
+public class RunJournal implements Closeable {
+
+    private static final int FSYNC_BATCH = 32;
+    private static final long FSYNC_INTERVAL_MS = 250;
+
+    private final File file;
+    private final FileChannel channel;
+    private final Map<String, String> completed = new LinkedHashMap<>();
+    private final Set<String> begun = new HashSet<>();
+    private final boolean existing;
+    private int unsynced;
+    private long lastSync = System.currentTimeMillis();
+
+    private RunJournal(File file) throws IOException {
+        this.file = file;
+        this.existing = file.isFile() && file.length() > 0;
+        if (existing) {
+            load();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Opens the journal of a run, creating it or picking up the one an earlier attempt left.
+     * @param kind Short name of the kind of run, e.g. "bulk" or "tasks".
+     * @param operationIds Stable ids of all planned operations, in order.
+     */
+    public static RunJournal open(File dir, String kind, List<String> operationIds) throws IOException {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return new RunJournal(new File(dir, kind + "-" + fingerprint(kind, operationIds) + ".journal"));
+    }
+
+    /**
+     * True when an earlier attempt of the same run left progress behind.
+     */
+    public synchronized boolean hasPriorProgress() {
+        return existing && (!completed.isEmpty() || !begun.isEmpty());
+    }
+
+    public synchronized boolean isCompleted(String id) {
+        return completed.containsKey(id);
+    }
+
+    /**
+     * The result recorded with a completed operation, e.g. the key of a created issue.
+     */
+    public synchronized String getResult(String id) {
+        return completed.get(id);
+    }
+
+    public synchronized int getCompletedCount() {
+        return completed.size();
+    }
+
+    /**
+     * True when the operation was sent by an earlier attempt but its outcome was never recorded.
+     */
+    public synchronized boolean isInDoubt(String id) {
+        return begun.contains(id) && !completed.containsKey(id);
+    }
+
+    /**
+     * Discards the progress of earlier attempts.
+     */
+    public synchronized void reset() throws IOException {
+        completed.clear();
+        begun.clear();
+        channel.truncate(0);
+        channel.force(false);
+    }
+
+    /**
+     * Records that a non-idempotent operation is about to be sent. Forced to disk before returning.
+     */
+    public synchronized void begin(String id) throws IOException {
+        begun.add(id);
+        append("B\t" + escape(id));
+        sync();
+    }
+
+    /**
+     * Records a batch of operations about to be sent in one request, with a single fsync.
+     */
+    public synchronized void begin(List<String> ids) throws IOException {
+        for (String id : ids) {
+            begun.add(id);
+            append("B\t" + escape(id));
+        }
+        sync();
+    }
+
+    /**
+     * Records that a begun operation was rejected, so it is safe to send again.
+     */
+    public synchronized void fail(String id) throws IOException {
+        begun.remove(id);
+        append("F\t" + escape(id));
+    }
+
+    public synchronized void complete(String id, String result) throws IOException {
+        completed.put(id, result == null ? "" : result);
+        append("D\t" + escape(id) + "\t" + escape(result == null ? "" : result));
+        unsynced++;
+        if (unsynced >= FSYNC_BATCH || System.currentTimeMillis() - lastSync >= FSYNC_INTERVAL_MS) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces everything recorded so far to disk, e.g. right after a request that created issues.
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Closes the journal and deletes it; the run is over and there is nothing to resume.
+     */
+    public synchronized void finish() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Closes the journal and keeps it for a later resume.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void load() throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--; // A torn last record was never acknowledged; ignore it
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes, 0, end), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length >= 2 && "B".equals(parts[0])) {
+                    begun.add(unescape(parts[1]));
+                } else if (parts.length >= 2 && "F".equals(parts[0])) {
+                    begun.remove(unescape(parts[1]));
+                } else if (parts.length >= 3 && "D".equals(parts[0])) {
+                    completed.put(unescape(parts[1]), unescape(parts[2]));
+                }
+            }
+        }
+        if (end < bytes.length) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(end);
+            }
+        }
+    }
+
+    private static String fingerprint(String kind, List<String> ids) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(kind.getBytes(StandardCharsets.UTF_8));
+            for (String id : ids) {
+                digest.update((byte) '\n');
+                digest.update(id.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] hash = digest.digest();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
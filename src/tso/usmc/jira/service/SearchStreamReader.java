@@ -0,0 +1,105 @@
+package tso.usmc.jira.service;
+
+import java.io.Reader;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Pull parser for /rest/api/2/search responses.
+ *
+ * Walks the top-level response object token by token and materializes one issue at a time,
+ * so a page of results never exists in memory as a whole. The paging fields
+ * (startAt, maxResults, total) are collected into a PageInfo as they are encountered.
+ */
+public class SearchStreamReader {
+
+    /**
+     * Receives each issue as soon as it has been parsed.
+     */
+    public interface IssueCallback {
+        void onIssue(JSONObject issue) throws Exception;
+    }
+
+    /**
+     * Paging details of one search response. count is the number of issues delivered.
+     */
+    public static class PageInfo {
+        public int startAt;
+        public int maxResults;
+        public int total = -1;
+        public int count;
+    }
+
+    private SearchStreamReader() {}
+
+    public static PageInfo read(Reader reader, IssueCallback callback) throws Exception {
+        JSONTokener x = new JSONTokener(reader);
+        PageInfo page = new PageInfo();
+
+        if (x.nextClean() != '{') {
+            throw x.syntaxError("Search response must be a JSON object");
+        }
+        char c = x.nextClean();
+        if (c == '}') {
+            return page;
+        }
+        x.back();
+
+        while (true) {
+            if (x.nextClean() != '"') {
+                throw x.syntaxError("Expected a field name");
+            }
+            String name = x.nextString('"');
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected ':' after " + name);
+            }
+
+            if ("issues".equals(name)) {
+                readIssues(x, page, callback);
+            } else {
+                Object value = x.nextValue();
+                if (value instanceof Number) {
+                    int n = ((Number) value).intValue();
+                    if ("total".equals(name)) page.total = n;
+                    else if ("startAt".equals(name)) page.startAt = n;
+                    else if ("maxResults".equals(name)) page.maxResults = n;
+                }
+            }
+
+            c = x.nextClean();
+            if (c == '}') break;
+            if (c != ',') {
+                throw x.syntaxError("Expected ',' or '}'");
+            }
+        }
+        return page;
+    }
+
+    private static void readIssues(JSONTokener x, PageInfo page, IssueCallback callback) throws Exception {
+        char c = x.nextClean();
+        if (c != '[') {
+            x.back();
+            x.nextValue(); // null or unexpected scalar; nothing to deliver
+            return;
+        }
+        c = x.nextClean();
+        if (c == ']') return;
+        x.back();
+
+        while (true) {
+            Object value = x.nextValue();
+            if (!(value instanceof JSONObject)) {
+                throw new JSONException("Expected an issue object but found: " + value);
+            }
+            page.count++;
+            callback.onIssue((JSONObject) value);
+
+            c = x.nextClean();
+            if (c == ']') return;
+            if (c != ',') {
+                throw x.syntaxError("Expected ',' or ']' in issues array");
+            }
+        }
+    }
+}
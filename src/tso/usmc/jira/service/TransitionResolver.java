@@ -0,0 +1,304 @@
+package tso.usmc.jira.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Resolves transition names to ids without a GET /transitions per issue.
+ *
+ * The transitions offered for an issue are defined by its workflow, i.e. by project, issue
+ * type and current status. The resolver caches the name -> id map per such workflow state
+ * and remembers which state each issue is in, so transitioning many issues that share a
+ * state costs one lookup plus one POST per issue. The state of an issue is learned from
+ * fields the caller already has (remember), from one batched search (prime), from the
+ * initial status of issues just created (rememberCreated), or from a single
+ * GET /issue/{key}?expand=transitions when nothing else is known.
+ *
+ * Transitions can also depend on conditions (permissions, field values), so when Jira rejects
+ * a POST the issue is looked up again and the POST retried once if a different id turns up.
+ *
+ * preflight() uses the same per-state cache to tell, before a bulk action, which issues
+ * cannot take a transition at all.
+ */
+public class TransitionResolver {
+
+    private static final int PRIME_BATCH_SIZE = 100;
+    private static final int MAX_TRACKED_ISSUES = 10_000;
+    private static final String STATE_FIELDS = "project,issuetype,status";
+
+    /** One available transition: its id and the status it leads to. */
+    private static final class Transition {
+        final String id;
+        final String toStatusId;
+
+        Transition(String id, String toStatusId) {
+            this.id = id;
+            this.toStatusId = toStatusId;
+        }
+    }
+
+    /**
+     * Outcome of checking a set of issues before a bulk action touches any of them.
+     */
+    public static final class Preflight {
+        private final Map<String, String> problems = new LinkedHashMap<>();
+        private final Map<String, List<String>> groups = new LinkedHashMap<>();
+        private int ready;
+
+        /** Why the action cannot succeed for the issue, or null when it can. */
+        public String getProblem(String issueKey) {
+            return problems.get(issueKey.toUpperCase());
+        }
+
+        public boolean isMissing(String issueKey) {
+            return MISSING.equals(problems.get(issueKey.toUpperCase()));
+        }
+
+        public int getReadyCount() { return ready; }
+        public int getProblemCount() { return problems.size(); }
+
+        /** Issues grouped by "PROJECT / issue type / status", with how each group is affected. */
+        public Map<String, List<String>> getGroups() { return groups; }
+    }
+
+    private static final String MISSING = "Issue not found or not visible";
+
+    private final JiraApiService service;
+    private final String baseUrl;
+    // status id -> status name, for readable pre-flight summaries
+    private final Map<String, String> statusNames = new ConcurrentHashMap<>();
+
+    // "PROJECT|issue type|statusId" -> lower-case transition name -> transition
+    private final Map<String, Map<String, Transition>> transitionsByState = new ConcurrentHashMap<>();
+    // "PROJECT|issue type" -> state an issue of that kind is in right after creation
+    private final Map<String, String> initialStateByKind = new ConcurrentHashMap<>();
+    // issue key -> state, or "PROJECT|issue type|" for created issues whose initial status is not known yet
+    private final Map<String, String> stateByIssue = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_TRACKED_ISSUES;
+                }
+            });
+
+    public TransitionResolver(JiraApiService service, String baseUrl) {
+        this.service = service;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Records the state of an issue from fields that include project, issuetype and status.
+     */
+    public void remember(String issueKey, JSONObject fields) {
+        String state = stateOf(fields);
+        if (state != null) {
+            stateByIssue.put(issueKey.toUpperCase(), state);
+        }
+    }
+
+    /**
+     * Records an issue that was just created. All issues of one project and type start in the
+     * same status, so only the first of them needs a lookup.
+     */
+    public void rememberCreated(String issueKey, String projectKey, String issueTypeName) {
+        if (projectKey == null || issueTypeName == null) return;
+        String kind = projectKey.toUpperCase() + "|" + issueTypeName.toLowerCase();
+        String initial = initialStateByKind.get(kind);
+        stateByIssue.put(issueKey.toUpperCase(), initial != null ? initial : kind + "|");
+    }
+
+    /**
+     * Looks up the state of many issues with one search per 100 keys. Keys that do not exist are skipped.
+     */
+    public void prime(Collection<String> issueKeys) throws Exception {
+        List<String> unknown = new ArrayList<>();
+        for (String key : issueKeys) {
+            String state = stateByIssue.get(key.toUpperCase());
+            if (state == null || state.endsWith("|")) unknown.add(key.toUpperCase());
+        }
+        loadStates(unknown);
+    }
+
+    private void loadStates(List<String> keys) throws Exception {
+        for (int i = 0; i < keys.size(); i += PRIME_BATCH_SIZE) {
+            List<String> batch = keys.subList(i, Math.min(keys.size(), i + PRIME_BATCH_SIZE));
+            JSONObject payload = new JSONObject()
+                    .put("jql", "key in (" + String.join(",", batch) + ")")
+                    .put("fields", new JSONArray(STATE_FIELDS.split(",")))
+                    .put("maxResults", batch.size())
+                    .put("validateQuery", false); // A deleted key must not fail the whole batch
+            service.streamSearch(baseUrl + "/rest/api/2/search", payload.toString(),
+                    issue -> remember(issue.getString("key"), issue.getJSONObject("fields")));
+        }
+    }
+
+    /**
+     * Loads the current state of all issues with batched searches and works out, per workflow
+     * state, whether the named transition is available. Issue states remembered earlier in the
+     * session are not trusted, since issues may have moved outside this tool; only the
+     * transitions per state are reused. Costs one search per 100 issues plus one lookup per
+     * distinct state that is not cached yet; nothing is written.
+     * @param transitionName The transition to check, or null to only check that the issues exist.
+     */
+    public Preflight preflight(Collection<String> issueKeys, String transitionName) throws Exception {
+        List<String> upperKeys = new ArrayList<>(issueKeys.size());
+        for (String key : issueKeys) {
+            String upper = key.toUpperCase();
+            stateByIssue.remove(upper); // A key the search no longer returns is reported missing
+            upperKeys.add(upper);
+        }
+        loadStates(upperKeys);
+        Preflight result = new Preflight();
+        Map<String, List<String>> byState = new LinkedHashMap<>();
+        for (String key : issueKeys) {
+            String upper = key.toUpperCase();
+            String state = stateByIssue.get(upper);
+            if (state == null || state.endsWith("|")) {
+                result.problems.put(upper, MISSING);
+            } else {
+                byState.computeIfAbsent(state, k -> new ArrayList<>()).add(upper);
+            }
+        }
+        if (!result.problems.isEmpty()) {
+            result.groups.put(MISSING, new ArrayList<>(result.problems.keySet()));
+        }
+        for (Map.Entry<String, List<String>> group : byState.entrySet()) {
+            String state = group.getKey();
+            List<String> keys = group.getValue();
+            String label = describeState(state);
+            if (transitionName != null) {
+                Map<String, Transition> byName = transitionsByState.get(state);
+                if (byName == null) {
+                    byName = lookup(keys.get(0), state); // One issue speaks for its whole state
+                }
+                if (!byName.containsKey(transitionName.toLowerCase())) {
+                    String problem = "No '" + transitionName + "' transition from " + label;
+                    for (String key : keys) result.problems.put(key, problem);
+                    result.groups.put(label + " (blocked)", keys);
+                    continue;
+                }
+            }
+            result.ready += keys.size();
+            result.groups.put(label, keys);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the id of the named transition for the issue in its current state, or null when
+     * the issue has no such transition.
+     */
+    public String findTransitionId(String issueKey, String transitionName) throws Exception {
+        Transition t = find(issueKey.toUpperCase(), transitionName, false);
+        return t == null ? null : t.id;
+    }
+
+    /**
+     * Performs the named transition.
+     * @return false when the issue has no transition with that name.
+     */
+    public boolean transition(String issueKey, String transitionName) throws Exception {
+        String key = issueKey.toUpperCase();
+        Transition t = find(key, transitionName, false);
+        if (t == null) return false;
+        try {
+            post(key, t);
+        } catch (Exception rejected) {
+            // The cached entry may be stale, or a condition differs for this issue. Ask Jira again.
+            Transition fresh = find(key, transitionName, true);
+            if (fresh == null || fresh.id.equals(t.id)) throw rejected;
+            post(key, fresh);
+        }
+        return true;
+    }
+
+    public void clear() {
+        transitionsByState.clear();
+        initialStateByKind.clear();
+        stateByIssue.clear();
+    }
+
+    private void post(String key, Transition t) throws Exception {
+        JSONObject payload = new JSONObject().put("transition", new JSONObject().put("id", t.id));
+        service.executeRequest(baseUrl + "/rest/api/2/issue/" + key + "/transitions", "POST", payload.toString());
+
+        // The issue is now in the target status of the transition.
+        String state = stateByIssue.get(key);
+        if (state != null && t.toStatusId != null && !state.endsWith("|")) {
+            stateByIssue.put(key, state.substring(0, state.lastIndexOf('|') + 1) + t.toStatusId);
+        } else {
+            stateByIssue.remove(key);
+        }
+    }
+
+    private Transition find(String key, String transitionName, boolean refresh) throws Exception {
+        String state = stateByIssue.get(key);
+        if (!refresh && state != null && !state.endsWith("|")) {
+            Map<String, Transition> byName = transitionsByState.get(state);
+            if (byName != null) {
+                return byName.get(transitionName.toLowerCase());
+            }
+        }
+        if (refresh && state != null) {
+            transitionsByState.remove(state);
+        }
+        return lookup(key, state).get(transitionName.toLowerCase());
+    }
+
+    /**
+     * One GET returns both the issue's state and its transitions.
+     */
+    private Map<String, Transition> lookup(String key, String previousState) throws Exception {
+        String json = service.executeRequest(baseUrl + "/rest/api/2/issue/" + key
+                + "?fields=" + STATE_FIELDS + "&expand=transitions", "GET", null);
+        JSONObject issue = new JSONObject(json);
+
+        Map<String, Transition> byName = new HashMap<>();
+        JSONArray transitions = issue.optJSONArray("transitions");
+        if (transitions != null) {
+            for (int i = 0; i < transitions.length(); i++) {
+                JSONObject t = transitions.getJSONObject(i);
+                if (!t.has("name")) continue;
+                JSONObject to = t.optJSONObject("to");
+                byName.put(t.getString("name").toLowerCase(),
+                        new Transition(t.getString("id"), to == null ? null : to.optString("id", null)));
+            }
+        }
+
+        String state = stateOf(issue.optJSONObject("fields"));
+        if (state != null) {
+            stateByIssue.put(key, state);
+            transitionsByState.put(state, byName);
+            if (previousState != null && previousState.endsWith("|")) {
+                initialStateByKind.put(previousState.substring(0, previousState.length() - 1), state);
+            }
+        }
+        return byName;
+    }
+
+    private String describeState(String state) {
+        String[] parts = state.split("\\|", -1);
+        String status = statusNames.getOrDefault(parts[2], "status " + parts[2]);
+        return parts[0] + " / " + parts[1] + " / " + status;
+    }
+
+    private String stateOf(JSONObject fields) {
+        if (fields == null) return null;
+        JSONObject project = fields.optJSONObject("project");
+        JSONObject type = fields.optJSONObject("issuetype");
+        JSONObject status = fields.optJSONObject("status");
+        if (project == null || type == null || status == null) return null;
+        if (status.has("name")) {
+            statusNames.put(status.optString("id"), status.getString("name"));
+        }
+        return project.optString("key").toUpperCase() + "|" + type.optString("name").toLowerCase() + "|" + status.optString("id");
+    }
+}
@@ -1,15 +1,27 @@
 package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
+import tso.usmc.jira.service.BulkEditPlan;
+import tso.usmc.jira.service.BulkExecutor;
+import tso.usmc.jira.service.JiraApiException;
 import tso.usmc.jira.service.JiraApiService;
+import tso.usmc.jira.service.RunJournal;
+import tso.usmc.jira.service.TransitionResolver;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class BulkActionPanel extends JPanel {
 
@@ -46,6 +58,15 @@ public class BulkActionPanel extends JPanel {
             "Relates", "Blocks", "Clones", "Duplicates"
     });
 
+    // Edit Plan: several actions applied to each issue in one pass
+    private BulkEditPlan plan = new BulkEditPlan();
+    private final DefaultListModel<String> planListModel = new DefaultListModel<>();
+    private final JList<String> planList = new JList<>(planListModel);
+    private final JButton addToPlanBtn = new JButton("Add to Plan");
+    private final JButton clearPlanBtn = new JButton("Clear Plan");
+
+    private final JSpinner workersSpinner = new JSpinner(new SpinnerNumberModel(BulkExecutor.DEFAULT_WORKERS, 1, 32, 1));
+    private final JCheckBox dryRunBox = new JCheckBox("Dry run");
     private final JButton executeBtn = new JButton("Execute Bulk Action");
     private final JButton clearResultsBtn = new JButton("Clear Results");
     private final JLabel statusLabel = new JLabel("Enter issue keys and configure the action to apply.");
@@ -115,8 +136,26 @@ public class BulkActionPanel extends JPanel {
         actionConfigCards.add(linkCard, "Link Issues");
 
         actionPanel.add(actionConfigCards, BorderLayout.CENTER);
+
+        // Plan: field changes are combined into one edit per issue, the rest follow in order.
+        JPanel planPanel = new JPanel(new BorderLayout(5, 5));
+        planPanel.setBorder(BorderFactory.createTitledBorder("Edit Plan (optional)"));
+        JScrollPane planScroll = new JScrollPane(planList);
+        planScroll.setPreferredSize(new Dimension(280, 70));
+        planPanel.add(planScroll, BorderLayout.CENTER);
+        JPanel planBtnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        planBtnPanel.add(addToPlanBtn);
+        planBtnPanel.add(clearPlanBtn);
+        planPanel.add(planBtnPanel, BorderLayout.SOUTH);
+        actionPanel.add(planPanel, BorderLayout.EAST);
         
         JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        workersSpinner.setValue(Math.max(1, Math.min(32, mainFrame.getJiraConfig().getBulkWorkers(BulkExecutor.DEFAULT_WORKERS))));
+        workersSpinner.setToolTipText("Issues processed in parallel");
+        btnPanel.add(new JLabel("Workers:"));
+        btnPanel.add(workersSpinner);
+        dryRunBox.setToolTipText("Check the issues and show what would be done, without changing anything");
+        btnPanel.add(dryRunBox);
         btnPanel.add(clearResultsBtn);
         btnPanel.add(executeBtn);
         actionPanel.add(btnPanel, BorderLayout.SOUTH);
@@ -149,17 +188,29 @@ public class BulkActionPanel extends JPanel {
         // --- Action Listeners ---
         executeBtn.addActionListener(e -> executeBulkAction());
         clearResultsBtn.addActionListener(e -> resultsModel.setRowCount(0));
+        addToPlanBtn.addActionListener(e -> addToPlan());
+        clearPlanBtn.addActionListener(e -> clearPlan());
     }
 
     private void executeBulkAction() {
         String[] keys = issueKeysArea.getText().trim().toUpperCase().split("\\s+");
-        String actionType = (String) actionTypeCombo.getSelectedItem();
 
         if (keys.length == 0 || (keys.length == 1 && keys[0].isEmpty())) {
             JOptionPane.showMessageDialog(this, "Please enter at least one issue key.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        // Run the plan if one was built, otherwise just the action configured on screen.
+        final BulkEditPlan runPlan;
+        try {
+            runPlan = plan.isEmpty() ? addConfiguredAction(new BulkEditPlan()) : plan;
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        final int workers = (Integer) workersSpinner.getValue();
+        final boolean dryRun = dryRunBox.isSelected();
+
         resultsModel.setRowCount(0); // Clear previous results
         setButtonsEnabled(false);
 
@@ -175,114 +226,326 @@ public class BulkActionPanel extends JPanel {
                 });
                 return;
             }
-            
-            for (int i = 0; i < keys.length; i++) {
-                String key = keys[i];
-                final int current = i + 1;
-                SwingUtilities.invokeLater(() -> statusLabel.setText("Processing " + current + " of " + keys.length + ": " + key));
 
+            TransitionResolver resolver = service.getTransitionResolver(mainFrame.getBaseUrl());
+            final JiraApiService svc = service;
+            List<BulkExecutor.Operation> operations = new ArrayList<>(keys.length * runPlan.requestsPerIssue());
+            for (String key : keys) {
+                operations.addAll(runPlan.toOperations(key, service, mainFrame.getBaseUrl(), resolver));
+            }
+
+            // Journal the run, so that after an interruption the same run can skip what already succeeded.
+            // A dry run changes nothing, so it neither reads nor touches the journal of a real run.
+            Map<BulkExecutor.Operation, String> ids = new IdentityHashMap<>();
+            RunJournal[] journalRef = { null }; // Opened below, once every id is known
+            List<String> idList = new ArrayList<>(operations.size());
+            // Descriptions leave out comment bodies and the like, so the plan's signature tells plans apart.
+            String planSignature = runPlan.signature();
+            for (int i = 0; i < operations.size(); i++) {
+                BulkExecutor.Operation op = operations.get(i);
+                String id = i + "|" + op.getKey() + "|" + op.getDescription() + "|" + planSignature;
+                idList.add(id);
+                if (!dryRun && isNonIdempotent(op)) {
+                    op = journaled(op, id, journalRef);
+                    operations.set(i, op);
+                }
+                ids.put(op, id);
+            }
+            RunJournal journal = dryRun ? null : openJournal(idList);
+            journalRef[0] = journal;
+            if (journal != null && journal.hasPriorProgress()) {
+                int choice = ResumePrompt.ask(this, "Resume Bulk Run",
+                        "An earlier run of these actions on these issues did not finish.\n"
+                                + journal.getCompletedCount() + " of " + operations.size() + " actions already succeeded.");
                 try {
-                    String actionDesc = "";
-                    switch (actionType) {
-                        case "Transition":
-                            String transName = transitionNameField.getText().trim();
-                            if (transName.isEmpty()) throw new Exception("Transition name required");
-                            actionDesc = "Transition to '" + transName + "'";
-                            
-                            String transJson = service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/transitions", "GET", null);
-                            String transId = findTransitionIdByName(transJson, transName);
-                            if (transId == null) throw new Exception("Transition '" + transName + "' not available for this issue status");
-                            
-                            JSONObject transPayload = new JSONObject();
-                            transPayload.put("transition", new JSONObject().put("id", transId));
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/transitions", "POST", transPayload.toString());
-                            break;
-
-                        case "Change Assignee":
-                            String assignee = assigneeField.getText().trim();
-                            actionDesc = "Assign to '" + assignee + "'";
-                            JSONObject assignPayload = new JSONObject();
-                            assignPayload.put("name", assignee); // Use "accountId" if Jira Cloud, but USMC likely uses "name" (ID)
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/assignee", "PUT", assignPayload.toString());
-                            break;
-
-                        case "Add Comment":
-                            String comment = commentField.getText().trim();
-                            if (comment.isEmpty()) throw new Exception("Comment body required");
-                            actionDesc = "Add Comment";
-                            JSONObject commentPayload = new JSONObject();
-                            commentPayload.put("body", comment);
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/comment", "POST", commentPayload.toString());
-                            break;
-
-                        case "Add Label":
-                            String addLabel = labelField.getText().trim();
-                            if (addLabel.isEmpty()) throw new Exception("Label required");
-                            actionDesc = "Add Label '" + addLabel + "'";
-                            JSONObject addPayload = new JSONObject();
-                            JSONArray addLabels = new JSONArray().put(new JSONObject().put("add", addLabel));
-                            addPayload.put("update", new JSONObject().put("labels", addLabels));
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key, "PUT", addPayload.toString());
-                            break;
-
-                        case "Remove Label":
-                            String remLabel = labelField.getText().trim();
-                            if (remLabel.isEmpty()) throw new Exception("Label required");
-                            actionDesc = "Remove Label '" + remLabel + "'";
-                            JSONObject remPayload = new JSONObject();
-                            JSONArray remLabels = new JSONArray().put(new JSONObject().put("remove", remLabel));
-                            remPayload.put("update", new JSONObject().put("labels", remLabels));
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key, "PUT", remPayload.toString());
-                            break;
-
-                        case "Change Priority":
-                            String priority = (String) priorityCombo.getSelectedItem();
-                            actionDesc = "Set Priority to '" + priority + "'";
-                            JSONObject priorityPayload = new JSONObject();
-                            priorityPayload.put("fields", new JSONObject().put("priority", new JSONObject().put("name", priority)));
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key, "PUT", priorityPayload.toString());
-                            break;
-
-                        case "Link Issues":
-                            String targetKey = targetIssueField.getText().trim().toUpperCase();
-                            String linkType = (String) linkTypeCombo.getSelectedItem();
-                            if (targetKey.isEmpty()) throw new Exception("Target issue key required");
-                            actionDesc = "Link to '" + targetKey + "' as '" + linkType + "'";
-                            
-                            JSONObject linkPayload = new JSONObject();
-                            linkPayload.put("type", new JSONObject().put("name", linkType));
-                            linkPayload.put("inwardIssue", new JSONObject().put("key", key));
-                            linkPayload.put("outwardIssue", new JSONObject().put("key", targetKey));
-                            service.executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issueLink", "POST", linkPayload.toString());
-                            break;
+                    if (choice == ResumePrompt.START_OVER) {
+                        journal.reset();
+                    } else if (choice != ResumePrompt.RESUME) {
+                        journal.close();
+                        SwingUtilities.invokeLater(() -> {
+                            statusLabel.setText("Cancelled. The interrupted run can still be resumed.");
+                            setButtonsEnabled(true);
+                        });
+                        return;
                     }
-                    
-                    addResultRow(key, actionDesc, "SUCCESS");
                 } catch (Exception e) {
-                    addResultRow(key, actionType, "ERROR: " + e.getMessage());
+                    System.err.println("Could not reset the bulk journal: " + e.getMessage());
                 }
             }
+            List<BulkExecutor.Operation> pending = new ArrayList<>(operations.size());
+            int inDoubt = 0;
+            for (BulkExecutor.Operation op : operations) {
+                if (journal != null && journal.isCompleted(ids.get(op))) {
+                    addResultRow(op.getKey(), op.getDescription(), "SKIPPED (completed in an earlier run)");
+                } else if (journal != null && journal.isInDoubt(ids.get(op))) {
+                    inDoubt++;
+                    addResultRow(op.getKey(), op.getDescription(), "UNKNOWN: interrupted while being sent. Check Jira before running it again.");
+                } else {
+                    pending.add(op);
+                }
+            }
+
+            // Pre-flight: batched searches load every issue's state, so actions that cannot succeed
+            // are dropped and summarized before anything is written.
+            pending = preflight(pending, operations, runPlan, resolver, dryRun);
+            if (pending == null || dryRun) {
+                if (dryRun && pending != null) {
+                    for (BulkExecutor.Operation op : pending) {
+                        addResultRow(op.getKey(), op.getDescription(), "DRY RUN: would be executed");
+                    }
+                }
+                closeJournal(journal, false);
+                int planned = pending == null ? 0 : pending.size();
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText(dryRun ? "Dry run complete. " + planned + " actions would be executed." : "Cancelled before any change was made.");
+                    setButtonsEnabled(true);
+                });
+                return;
+            }
+
+            long[] lastStatusUpdate = { 0 };
+            int failures = 0;
+            try {
+                failures = new BulkExecutor(workers).run(pending, new BulkExecutor.Listener() {
+                    @Override
+                    public void onResult(BulkExecutor.Operation op, Exception error) {
+                        if (error == null && journal != null) {
+                            try {
+                                journal.complete(ids.get(op), null);
+                            } catch (Exception e) {
+                                System.err.println("Could not journal " + op.getKey() + ": " + e.getMessage());
+                            }
+                        }
+                        addResultRow(op.getKey(), op.getDescription(), error == null ? "SUCCESS" : "ERROR: " + error.getMessage());
+                    }
+
+                    @Override
+                    public void onProgress(int done, int total, double perSecond, long etaMillis) {
+                        // Keep the EDT to a few status updates per second however fast results come in.
+                        synchronized (lastStatusUpdate) {
+                            long now = System.currentTimeMillis();
+                            if (done < total && now - lastStatusUpdate[0] < 250) return;
+                            lastStatusUpdate[0] = now;
+                        }
+                        String text = String.format("Processed %d of %d (%.1f/s, ETA %s)", done, total, perSecond, formatEta(etaMillis));
+                        SwingUtilities.invokeLater(() -> statusLabel.setText(text));
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures = -1;
+            }
+
+            // Keep the journal while anything is left to do, so running the same input again resumes.
+            boolean keptJournal = journal != null && (failures != 0 || inDoubt > 0);
+            closeJournal(journal, !keptJournal);
 
             SwingUtilities.invokeLater(() -> {
-                statusLabel.setText("Bulk execution complete. Processed " + keys.length + " issues.");
+                statusLabel.setText("Bulk execution complete. Processed " + keys.length + " issues."
+                        + " (Throttled: " + svc.getThrottledCount() + ", Retried: " + svc.getRetriedCount() + ")"
+                        + (keptJournal ? " Run again to retry only the failed actions." : ""));
                 setButtonsEnabled(true);
             });
         }).start();
     }
 
-    private String findTransitionIdByName(String jsonResponse, String transitionName) {
-        if (jsonResponse == null || jsonResponse.trim().isEmpty()) return null;
-        JSONObject response = new JSONObject(jsonResponse);
-        if (!response.has("transitions")) return null;
-        
-        JSONArray transitions = response.getJSONArray("transitions");
-        for (int i = 0; i < transitions.length(); i++) {
-            JSONObject t = transitions.getJSONObject(i);
-            if (t.getString("name").equalsIgnoreCase(transitionName)) {
-                return t.getString("id");
+    /**
+     * Checks the pending operations against the issues' current state and lets the user confirm
+     * the result. Only the plan's first transition is checked, and only when it is still pending
+     * for every issue; later transitions depend on where the first one leads.
+     * @return The operations to run, or null when the user cancelled or nothing can run.
+     */
+    private List<BulkExecutor.Operation> preflight(List<BulkExecutor.Operation> pending, List<BulkExecutor.Operation> all,
+                                                   BulkEditPlan runPlan, TransitionResolver resolver, boolean dryRun) {
+        Set<String> pendingKeys = new LinkedHashSet<>();
+        Set<BulkExecutor.Operation> pendingSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        pendingSet.addAll(pending);
+        for (BulkExecutor.Operation op : pending) {
+            pendingKeys.add(op.getKey());
+        }
+        boolean checkTransition = runPlan.hasTransition();
+        Set<String> seen = new HashSet<>();
+        for (BulkExecutor.Operation op : all) {
+            if ("transition".equals(op.getType()) && seen.add(op.getKey()) && !pendingSet.contains(op)) {
+                checkTransition = false; // Some issues are already past the first transition
+            }
+        }
+
+        TransitionResolver.Preflight check;
+        try {
+            SwingUtilities.invokeLater(() -> statusLabel.setText("Pre-flight: checking " + pendingKeys.size() + " issues..."));
+            check = resolver.preflight(pendingKeys, checkTransition ? runPlan.getFirstTransition() : null);
+        } catch (Exception e) {
+            System.err.println("Pre-flight check failed, running without it: " + e.getMessage());
+            return pending;
+        }
+
+        List<BulkExecutor.Operation> ready = new ArrayList<>(pending.size());
+        for (BulkExecutor.Operation op : pending) {
+            String problem = check.getProblem(op.getKey());
+            if (problem == null) {
+                ready.add(op);
+            } else {
+                addResultRow(op.getKey(), op.getDescription(), "SKIPPED (pre-flight): " + problem);
+            }
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(check.getReadyCount()).append(" of ").append(pendingKeys.size()).append(" issues are ready (")
+                .append(ready.size()).append(" requests).\n");
+        for (Map.Entry<String, List<String>> group : check.getGroups().entrySet()) {
+            summary.append("\n").append(group.getKey()).append(": ").append(group.getValue().size()).append(" issue(s)");
+        }
+        if (check.getProblemCount() == 0 && !dryRun) {
+            return ready;
+        }
+        if (ready.isEmpty()) {
+            showMessage(summary + "\n\nNothing to execute.");
+            return null;
+        }
+        if (dryRun) {
+            showMessage(summary.toString());
+            return ready;
+        }
+        return confirm(summary + "\n\nExecute the " + ready.size() + " ready actions?") ? ready : null;
+    }
+
+    private void showMessage(String message) {
+        try {
+            SwingUtilities.invokeAndWait(() -> JOptionPane.showMessageDialog(this, message, "Bulk Pre-flight", JOptionPane.INFORMATION_MESSAGE));
+        } catch (Exception e) {
+            System.err.println("Could not show the pre-flight summary: " + e.getMessage());
+        }
+    }
+
+    private boolean confirm(String message) {
+        int[] choice = { JOptionPane.CLOSED_OPTION };
+        try {
+            SwingUtilities.invokeAndWait(() -> choice[0] = JOptionPane.showConfirmDialog(this, message, "Bulk Pre-flight", JOptionPane.OK_CANCEL_OPTION));
+        } catch (Exception e) {
+            System.err.println("Could not ask for confirmation: " + e.getMessage());
+        }
+        return choice[0] == JOptionPane.OK_OPTION;
+    }
+
+    /**
+     * Comments and links are added again when resent, unlike edits and transitions.
+     */
+    private static boolean isNonIdempotent(BulkExecutor.Operation op) {
+        return "comment".equals(op.getType()) || "link".equals(op.getType());
+    }
+
+    /**
+     * Wraps the operation so a begin record is forced to the journal before it is sent; a crash
+     * mid-request then shows it as in doubt instead of posting it again. A 4xx means Jira
+     * rejected it, so it is recorded as failed and may be retried.
+     */
+    private static BulkExecutor.Operation journaled(BulkExecutor.Operation op, String id, RunJournal[] journalRef) {
+        BulkExecutor.Step step = op.getStep();
+        return new BulkExecutor.Operation(op.getKey(), op.getDescription(), op.getType(), () -> {
+            RunJournal journal = journalRef[0];
+            if (journal != null) journal.begin(id);
+            try {
+                step.run();
+            } catch (Exception e) {
+                if (journal != null && JiraApiException.isClientError(e)) {
+                    journal.fail(id);
+                }
+                throw e;
             }
+        });
+    }
+
+    /**
+     * Deletes the journal when the run is over, or when it holds nothing worth resuming.
+     */
+    private void closeJournal(RunJournal journal, boolean finished) {
+        if (journal == null) return;
+        try {
+            if (finished || journal.getCompletedCount() == 0) journal.finish(); else journal.close();
+        } catch (Exception e) {
+            System.err.println("Could not close the bulk journal: " + e.getMessage());
+        }
+    }
+
+    private RunJournal openJournal(List<String> operationIds) {
+        try {
+            File dir = new File(mainFrame.getJiraConfig().getConfigFile().getParentFile(), "journal");
+            return RunJournal.open(dir, "bulk", operationIds);
+        } catch (Exception e) {
+            System.err.println("Bulk journal unavailable, running without resume support: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Appends the action configured on screen to a plan.
+     * @throws Exception with a message for the user when a required input is missing.
+     */
+    private BulkEditPlan addConfiguredAction(BulkEditPlan target) throws Exception {
+        String actionType = (String) actionTypeCombo.getSelectedItem();
+        switch (actionType) {
+            case "Transition":
+                String transName = transitionNameField.getText().trim();
+                if (transName.isEmpty()) throw new Exception("Transition name required");
+                return target.transition(transName);
+
+            case "Change Assignee":
+                // Use "accountId" if Jira Cloud, but USMC likely uses "name" (ID)
+                return target.setAssignee(assigneeField.getText().trim());
+
+            case "Add Comment":
+                String comment = commentField.getText().trim();
+                if (comment.isEmpty()) throw new Exception("Comment body required");
+                return target.addComment(comment);
+
+            case "Add Label":
+            case "Remove Label":
+                String label = labelField.getText().trim();
+                if (label.isEmpty()) throw new Exception("Label required");
+                return "Add Label".equals(actionType) ? target.addLabel(label) : target.removeLabel(label);
+
+            case "Change Priority":
+                return target.setPriority((String) priorityCombo.getSelectedItem());
+
+            case "Link Issues":
+                String targetKey = targetIssueField.getText().trim().toUpperCase();
+                if (targetKey.isEmpty()) throw new Exception("Target issue key required");
+                return target.linkTo(targetKey, (String) linkTypeCombo.getSelectedItem());
+
+            default:
+                throw new Exception("Unknown action: " + actionType);
         }
-        return null;
+    }
+
+    private void addToPlan() {
+        try {
+            addConfiguredAction(plan);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        refreshPlanList();
+    }
+
+    private void clearPlan() {
+        plan = new BulkEditPlan();
+        refreshPlanList();
+    }
+
+    private void refreshPlanList() {
+        planListModel.clear();
+        for (String line : plan.describe()) {
+            planListModel.addElement(line);
+        }
+        statusLabel.setText(plan.isEmpty() ? "Plan cleared. Execute runs the action configured above."
+                : "Plan: " + plan.describe().size() + " changes, " + plan.requestsPerIssue() + " request(s) per issue.");
+    }
+
+    private static String formatEta(long millis) {
+        if (millis < 0) return "--";
+        long seconds = (millis + 999) / 1000;
+        return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
     }
 
     private void addResultRow(String key, String action, String result) {
@@ -291,5 +554,7 @@ public class BulkActionPanel extends JPanel {
 
     private void setButtonsEnabled(boolean enabled) {
         executeBtn.setEnabled(enabled);
+        addToPlanBtn.setEnabled(enabled);
+        clearPlanBtn.setEnabled(enabled);
     }
 }
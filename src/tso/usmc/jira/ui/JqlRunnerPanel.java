@@ -1,15 +1,20 @@
 package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
+import tso.usmc.jira.service.JqlExporter;
+import tso.usmc.jira.service.SearchStreamReader;
+import tso.usmc.jira.util.JiraUtils;
 import tso.usmc.jira.util.JsonUtils;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import org.json.JSONArray;
+import java.util.ArrayList;
+import java.util.List;
 import org.json.JSONObject;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -23,10 +28,13 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
     private final JTextArea jqlArea = new JTextArea("issuetype = Bug AND status = 'To Do' ORDER BY created DESC");
     private final JTextField fieldsField = new JTextField("key, summary, status, assignee, issuelinks");
     private final JButton executeBtn = new JButton("Execute JQL");
+    private final JButton exportBtn = new JButton("Export...");
     private final JLabel statusLabel = new JLabel("Enter a JQL query and click Execute.");
 
-    private final DefaultTableModel tableModel = new DefaultTableModel();
-    private final JTable resultsTable = new JTable(tableModel);
+    private static final int PAGE_SIZE = 100;
+
+    private final JTable resultsTable = new JTable(new DefaultTableModel());
+    private LazySearchTableModel resultsModel;
     private String selectedIssueKey;
 
     public JqlRunnerPanel(JiraApiClientGui mainFrame) {
@@ -49,18 +57,22 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
         JPanel fieldsPanel = new JPanel(new BorderLayout(5, 5));
         fieldsPanel.add(new JLabel("Fields to display:"), BorderLayout.WEST);
         fieldsPanel.add(fieldsField, BorderLayout.CENTER);
-        fieldsPanel.add(executeBtn, BorderLayout.EAST);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.add(executeBtn);
+        buttonPanel.add(exportBtn);
+        fieldsPanel.add(buttonPanel, BorderLayout.EAST);
         configPanel.add(fieldsPanel, BorderLayout.SOUTH);
         
         // --- CENTER: Results Table ---
         resultsTable.setFillsViewportHeight(true);
-        resultsTable.setAutoCreateRowSorter(true); 
+        // No row sorter: it would read every row and so load the whole result. Sort with ORDER BY.
         
         // --- NEW: Enable selection of individual cells ---
         resultsTable.setCellSelectionEnabled(true);
         
         JScrollPane tableScroll = new JScrollPane(resultsTable);
         tableScroll.setBorder(BorderFactory.createTitledBorder("Results"));
+        tableScroll.getViewport().addChangeListener(e -> prefetchVisibleRows(tableScroll.getViewport()));
 
         // --- BOTTOM: Status Bar ---
         JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -74,6 +86,7 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
 
         // --- Action Listener ---
         executeBtn.addActionListener(e -> executeJql());
+        exportBtn.addActionListener(e -> exportJql());
         setupContextMenu();
     }
 
@@ -105,18 +118,18 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
                 JTable source = (JTable) e.getSource();
                 int row = source.rowAtPoint(e.getPoint());
 
-                if (row >= 0 && row < source.getRowCount()) {
+                if (row >= 0 && row < source.getRowCount() && resultsModel != null && resultsModel.isRowLoaded(row)) {
                     source.setRowSelectionInterval(row, row);
                     int keyColumnIndex = -1;
-                    for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                        if ("key".equalsIgnoreCase(tableModel.getColumnName(i))) {
+                    for (int i = 0; i < resultsModel.getColumnCount(); i++) {
+                        if ("key".equalsIgnoreCase(resultsModel.getColumnName(i))) {
                             keyColumnIndex = i;
                             break;
                         }
                     }
 
                     if (keyColumnIndex != -1) {
-                        selectedIssueKey = (String) source.getModel().getValueAt(source.convertRowIndexToModel(row), keyColumnIndex);
+                        selectedIssueKey = (String) resultsModel.getValueAt(row, keyColumnIndex);
                         
                         // BUILD DYNAMIC MENU
                         final JPopupMenu contextMenu = new JPopupMenu();
@@ -168,8 +181,11 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
         }
 
         statusLabel.setText("Executing query...");
-        tableModel.setRowCount(0);
-        tableModel.setColumnCount(0);
+        if (resultsModel != null) {
+            resultsModel.dispose();
+            resultsModel = null;
+        }
+        resultsTable.setModel(new DefaultTableModel());
 
         new Thread(() -> {
             try {
@@ -180,38 +196,44 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
                 if (!fieldsText.isEmpty()) {
                     payload.put("fields", fieldsText.split("\\s*,\\s*"));
                 }
-                
-                payload.put("maxResults", 500);
 
-                String rawResponse = mainFrame.getService().executeRequest(
-                    mainFrame.getBaseUrl() + "/rest/api/2/search",
-                    "POST",
-                    payload.toString()
-                );
+                // Only the first page is fetched here. It gives the total and the columns;
+                // the table model loads further pages as they scroll into view.
+                String searchUrl = mainFrame.getBaseUrl() + "/rest/api/2/search";
+                String[] requestedColumns = fieldsText.isEmpty() ? null : fieldsText.split("\\s*,\\s*");
+                final String[][] columnHolder = { requestedColumns };
+                LazySearchTableModel.RowMapper mapper = issue -> {
+                    String[] cols = columnHolder[0];
+                    Object[] row = new Object[cols.length];
+                    for (int j = 0; j < cols.length; j++) {
+                        row[j] = JiraUtils.getFieldValue(issue, cols[j]);
+                    }
+                    return row;
+                };
+                JSONObject firstPage = new JSONObject(payload.toString());
+                firstPage.put("startAt", 0);
+                firstPage.put("maxResults", PAGE_SIZE);
+                List<Object[]> rows = new ArrayList<>();
+                SearchStreamReader.PageInfo info = mainFrame.getService().streamSearch(searchUrl, firstPage.toString(), issue -> {
+                    if (columnHolder[0] == null) {
+                        columnHolder[0] = JSONObject.getNames(issue.getJSONObject("fields"));
+                    }
+                    rows.add(mapper.toRow(issue));
+                });
 
-                JSONObject responseJson = new JSONObject(rawResponse);
-                JSONArray issues = responseJson.getJSONArray("issues");
-                
-                if (issues.length() == 0) {
+                if (rows.isEmpty()) {
                     SwingUtilities.invokeLater(() -> statusLabel.setText("Query executed successfully. No issues found."));
                     return;
                 }
 
-                String[] columns = fieldsText.isEmpty() ? JSONObject.getNames(issues.getJSONObject(0).getJSONObject("fields")) : fieldsText.split("\\s*,\\s*");
-                
-                SwingUtilities.invokeLater(() -> {
-                    tableModel.setColumnIdentifiers(columns);
-
-                    for (int i = 0; i < issues.length(); i++) {
-                        JSONObject issue = issues.getJSONObject(i);
-                        Object[] row = new Object[columns.length];
+                LazySearchTableModel model = new LazySearchTableModel(mainFrame.getService(), searchUrl, payload,
+                        columnHolder[0], mapper, PAGE_SIZE, rows, info.total);
+                model.setErrorHandler(err -> statusLabel.setText("Error loading results: " + err.getMessage()));
 
-                        for (int j = 0; j < columns.length; j++) {
-                            row[j] = getFieldValue(issue, columns[j]);
-                        }
-                        tableModel.addRow(row);
-                    }
-                    statusLabel.setText("Success! Found " + issues.length() + " issues. (Max 500 displayed)");
+                SwingUtilities.invokeLater(() -> {
+                    resultsModel = model;
+                    resultsTable.setModel(model);
+                    statusLabel.setText("Success! Found " + model.getRowCount() + " issues.");
                 });
 
             } catch (Exception ex) {
@@ -223,61 +245,52 @@ public class JqlRunnerPanel extends JPanel implements tso.usmc.jira.util.ConfigC
         }).start();
     }
 
-    private String getFieldValue(JSONObject issue, String fieldName) {
-        if (!issue.has("fields")) return "N/A";
-        JSONObject fields = issue.getJSONObject("fields");
-
-        if ("key".equalsIgnoreCase(fieldName)) {
-            return issue.optString("key", "N/A");
+    /**
+     * Writes every result of the query to a CSV or JSON Lines file, chosen by the file extension.
+     */
+    private void exportJql() {
+        String jql = jqlArea.getText().trim();
+        if (jql.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "JQL query cannot be empty.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-        
-        if ("issuelinks".equalsIgnoreCase(fieldName)) {
-            if (!fields.has("issuelinks") || fields.isNull("issuelinks") || fields.getJSONArray("issuelinks").length() == 0) {
-                return "---";
-            }
-            
-            JSONArray links = fields.getJSONArray("issuelinks");
-            StringBuilder formattedLinks = new StringBuilder();
-            
-            for (int i = 0; i < links.length(); i++) {
-                JSONObject link = links.getJSONObject(i);
-                JSONObject linkType = link.getJSONObject("type");
-                
-                String linkKey = "N/A";
-                String linkDescription = "";
-                
-                if (link.has("inwardIssue")) {
-                    linkDescription = linkType.getString("inward");
-                    linkKey = link.getJSONObject("inwardIssue").getString("key");
-                } else if (link.has("outwardIssue")) {
-                    linkDescription = linkType.getString("outward");
-                    linkKey = link.getJSONObject("outwardIssue").getString("key");
-                }
-                
-                if (i > 0) {
-                    formattedLinks.append(", ");
-                }
-                formattedLinks.append(linkDescription).append(" ").append(linkKey);
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("jira-export.csv"));
+        chooser.setDialogTitle("Export results (.csv or .jsonl)");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File target = chooser.getSelectedFile();
+        JqlExporter.Format format = target.getName().toLowerCase().endsWith(".jsonl")
+                ? JqlExporter.Format.JSONL : JqlExporter.Format.CSV;
+
+        String fieldsText = fieldsField.getText().trim();
+        String[] fields = fieldsText.isEmpty() ? null : fieldsText.split("\\s*,\\s*");
+
+        exportBtn.setEnabled(false);
+        statusLabel.setText("Exporting to " + target.getName() + "...");
+        new Thread(() -> {
+            try {
+                JqlExporter exporter = new JqlExporter(mainFrame.getService(), mainFrame.getBaseUrl() + "/rest/api/2/search");
+                int count = exporter.export(jql, fields, format, target, exported ->
+                        SwingUtilities.invokeLater(() -> statusLabel.setText("Exporting to " + target.getName() + "... " + exported + " issues written.")));
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Export complete: " + count + " issues written to " + target.getAbsolutePath()));
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, "Export failed:\n" + ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Export failed."));
+            } finally {
+                SwingUtilities.invokeLater(() -> exportBtn.setEnabled(true));
             }
-            return formattedLinks.toString();
-        }
-
-        if (!fields.has(fieldName) || fields.isNull(fieldName)) {
-            return "---";
-        }
-
-        Object field = fields.get(fieldName);
+        }).start();
+    }
 
-        if (field instanceof JSONObject) {
-            JSONObject nestedObj = (JSONObject) field;
-            if (nestedObj.has("name")) {
-                return nestedObj.getString("name");
-            } else if (nestedObj.has("displayName")) {
-                return nestedObj.getString("displayName");
-            } else {
-                return "[Object]";
-            }
-        }
-        return field.toString();
+    /**
+     * Loads the pages around the visible rows before the table asks for them.
+     */
+    private void prefetchVisibleRows(JViewport viewport) {
+        if (resultsModel == null) return;
+        Rectangle view = viewport.getViewRect();
+        int first = resultsTable.rowAtPoint(new Point(0, view.y));
+        int last = resultsTable.rowAtPoint(new Point(0, view.y + view.height - 1));
+        if (first < 0) return;
+        resultsModel.prefetch(first, last < 0 ? resultsModel.getRowCount() - 1 : last);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package tso.usmc.jira.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only viewer for text files too large for a JTextArea.
+ *
+ * The file is memory-mapped and indexed by line start once; the list only asks for the lines
+ * it paints, and each is decoded from the mapping when asked. Nothing proportional to the file
+ * size is kept in the heap except the line index (4 bytes per line).
+ */
+public class LargeTextViewer extends JPanel {
+
+    /** Longer lines are cut when displayed; search still covers the whole line. */
+    private static final int MAX_LINE_CHARS = 4000;
+
+    /**
+     * The lines of a mapped UTF-8 file, for a JList.
+     */
+    public static final class MappedText extends AbstractListModel<String> {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int[] lineStarts;
+        private final int lineCount;
+        private final int longestLine;
+
+        private MappedText(File file, MappedByteBuffer buffer, int[] lineStarts, int lineCount, int longestLine) {
+            this.file = file;
+            this.buffer = buffer;
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.longestLine = longestLine;
+        }
+
+        /**
+         * Maps and indexes the file. Reads the whole file once, so call it off the EDT.
+         */
+        public static MappedText open(File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File is too large to display (" + size / (1024 * 1024) + " MB)");
+                }
+                // The mapping stays valid after the channel is closed.
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int[] starts = new int[Math.max(16, (int) (size / 32))];
+                int count = 1;
+                int longest = 0;
+                int lineStart = 0;
+                for (int i = 0; i < size; i++) {
+                    if (buffer.get(i) == '\n') {
+                        longest = Math.max(longest, i - lineStart);
+                        lineStart = i + 1;
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, starts.length * 2);
+                        }
+                        starts[count++] = lineStart;
+                    }
+                }
+                longest = Math.max(longest, (int) size - lineStart);
+                if (count > 1 && starts[count - 1] == size) {
+                    count--; // A final line break does not start another line
+                }
+                return new MappedText(file, buffer, starts, count, longest);
+            }
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public int getSize() {
+            return lineCount;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            int start = lineStarts[index];
+            int end = index + 1 < lineCount ? lineStarts[index + 1] - 1 : buffer.limit();
+            if (end > start && buffer.get(end - 1) == '\n') end--; // Final line break of the file
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+            // Cut long lines in bytes first so a huge line is never decoded in full.
+            boolean cut = end - start > MAX_LINE_CHARS * 4;
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(cut ? start + MAX_LINE_CHARS * 4 : end).position(start);
+            String line = StandardCharsets.UTF_8.decode(slice).toString();
+            if (cut || line.length() > MAX_LINE_CHARS) {
+                line = line.substring(0, Math.min(line.length(), MAX_LINE_CHARS)) + " ...";
+            }
+            return line;
+        }
+
+        /**
+         * Finds the text, ignoring ASCII case, starting at the given byte offset.
+         * @return The byte offset of the match, or -1.
+         */
+        long find(String text, long from) {
+            byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < needle.length; i++) {
+                needle[i] = lower(needle[i]);
+            }
+            int limit = buffer.limit() - needle.length;
+            byte first = needle[0];
+            for (int i = (int) Math.max(0, from); i <= limit; i++) {
+                if (lower(buffer.get(i)) != first) continue;
+                int j = 1;
+                while (j < needle.length && lower(buffer.get(i + j)) == needle[j]) j++;
+                if (j == needle.length) return i;
+            }
+            return -1;
+        }
+
+        int lineOf(long offset) {
+            int pos = Arrays.binarySearch(lineStarts, 0, lineCount, (int) offset);
+            return pos >= 0 ? pos : -pos - 2;
+        }
+
+        long startOf(int line) {
+            return lineStarts[line];
+        }
+
+        private static byte lower(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+        }
+    }
+
+    private final JList<String> lineList = new JList<>();
+    private final JTextField searchField = new JTextField(20);
+    private final JTextField lineField = new JTextField(6);
+    private final JButton findBtn = new JButton("Find Next");
+    private final JLabel statusLabel = new JLabel(" ");
+    private MappedText text;
+    private long lastMatch = -1;
+
+    public LargeTextViewer() {
+        setLayout(new BorderLayout(5, 5));
+
+        JPanel toolBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        toolBar.add(new JLabel("Find:"));
+        toolBar.add(searchField);
+        toolBar.add(findBtn);
+        toolBar.add(new JLabel("Go to line:"));
+        toolBar.add(lineField);
+        JButton goBtn = new JButton("Go");
+        toolBar.add(goBtn);
+        toolBar.add(statusLabel);
+        add(toolBar, BorderLayout.NORTH);
+
+        Font font = new Font("Monospaced", Font.PLAIN, 12);
+        lineList.setFont(font);
+        lineList.setBackground(new Color(245, 245, 245));
+        lineList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lineList.setFixedCellHeight(getFontMetrics(font).getHeight());
+        DefaultListCellRenderer renderer = new DefaultListCellRenderer();
+        renderer.putClientProperty("html.disable", Boolean.TRUE); // Show "<html>" in a response as text
+        lineList.setCellRenderer(renderer);
+        add(new JScrollPane(lineList), BorderLayout.CENTER);
+
+        findBtn.addActionListener(e -> findNext());
+        searchField.addActionListener(e -> findNext());
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { lastMatch = -1; }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { lastMatch = -1; }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { lastMatch = -1; }
+        });
+        goBtn.addActionListener(e -> goToLine());
+        lineField.addActionListener(e -> goToLine());
+    }
+
+    /**
+     * Shows an opened file. Call on the EDT.
+     */
+    public void setText(MappedText text) {
+        this.text = text;
+        this.lastMatch = -1;
+        FontMetrics fm = lineList.getFontMetrics(lineList.getFont());
+        // A fixed width keeps the list from measuring every line to size its scroll pane.
+        lineList.setFixedCellWidth(fm.charWidth('m') * (Math.min(text.longestLine, MAX_LINE_CHARS) + 4) + 10);
+        lineList.setModel(text);
+        lineList.ensureIndexIsVisible(0);
+        statusLabel.setText(String.format("%,d lines, %,d KB", text.getSize(), text.getFile().length() / 1024));
+    }
+
+    private void goToLine() {
+        if (text == null) return;
+        try {
+            int line = Integer.parseInt(lineField.getText().trim().replace(",", ""));
+            int index = Math.max(1, Math.min(text.getSize(), line)) - 1;
+            lastMatch = -1; // The next search starts here
+            showLine(index);
+            statusLabel.setText("Line " + (index + 1) + " of " + String.format("%,d", text.getSize()));
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Not a line number: " + lineField.getText().trim());
+        }
+    }
+
+    private void findNext() {
+        String query = searchField.getText();
+        if (text == null || query.isEmpty()) return;
+        MappedText searched = text;
+        int selected = lineList.getSelectedIndex();
+        long from = lastMatch >= 0 ? lastMatch + 1 : selected >= 0 ? searched.startOf(selected) : 0;
+        findBtn.setEnabled(false);
+        statusLabel.setText("Searching...");
+        new SwingWorker<long[], Void>() {
+            @Override
+            protected long[] doInBackground() {
+                long match = searched.find(query, from);
+                boolean wrapped = false;
+                if (match < 0 && from > 0) {
+                    match = searched.find(query, 0);
+                    wrapped = true;
+                }
+                return new long[] { match, wrapped ? 1 : 0 };
+            }
+
+            @Override
+            protected void done() {
+                findBtn.setEnabled(true);
+                if (searched != text) return; // A new response replaced the one searched
+                try {
+                    long[] result = get();
+                    if (result[0] < 0) {
+                        statusLabel.setText("Not found: " + query);
+                        return;
+                    }
+                    lastMatch = result[0];
+                    int line = searched.lineOf(result[0]);
+                    showLine(line);
+                    statusLabel.setText("Found on line " + (line + 1) + (result[1] == 1 ? " (wrapped)" : ""));
+                } catch (Exception e) {
+                    statusLabel.setText("Search failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showLine(int line) {
+        lineList.setSelectedIndex(line);
+        lineList.ensureIndexIsVisible(line);
+    }
+}
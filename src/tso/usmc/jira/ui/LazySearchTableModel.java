@@ -0,0 +1,153 @@
+package tso.usmc.jira.ui;
+
+import tso.usmc.jira.service.JiraApiService;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+
+/**
+ * Table model over the full result of a JQL search that only holds a window of it.
+ *
+ * The row count is the search total, but rows are fetched one page (startAt/maxResults) at a
+ * time when the table first asks for them, and only the most recently used pages are kept.
+ * Rows that are not loaded yet show a placeholder until their page arrives. prefetch() lets
+ * the view load the pages just past the viewport before the user scrolls there.
+ *
+ * Sorting happens in Jira (ORDER BY); a client-side row sorter would touch every row and
+ * defeat the point. All methods are meant to be called on the Event Dispatch Thread.
+ */
+public class LazySearchTableModel extends AbstractTableModel {
+
+    public static final String LOADING = "Loading...";
+    private static final int MAX_CACHED_PAGES = 30;
+
+    /**
+     * Converts one issue into the values of a table row.
+     */
+    public interface RowMapper {
+        Object[] toRow(JSONObject issue);
+    }
+
+    private final JiraApiService service;
+    private final String searchUrl;
+    private final JSONObject payload;
+    private final String[] columns;
+    private final RowMapper mapper;
+    private final int pageSize;
+    private final int rowCount;
+
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private Consumer<Exception> errorHandler = e -> System.err.println("Page load failed: " + e.getMessage());
+    private boolean disposed;
+
+    /**
+     * @param payload Search payload without startAt/maxResults.
+     * @param firstPage Rows of page 0, already fetched to learn the total and the columns.
+     * @param total The search total.
+     */
+    public LazySearchTableModel(JiraApiService service, String searchUrl, JSONObject payload, String[] columns,
+                                RowMapper mapper, int pageSize, List<Object[]> firstPage, int total) {
+        this.service = service;
+        this.searchUrl = searchUrl;
+        this.payload = payload;
+        this.columns = columns;
+        this.mapper = mapper;
+        this.pageSize = Math.max(1, firstPage.isEmpty() ? pageSize : Math.min(pageSize, firstPage.size()));
+        this.rowCount = Math.max(total, firstPage.size());
+        pages.put(0, firstPage.toArray(new Object[0][]));
+    }
+
+    public void setErrorHandler(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            load(page);
+            return LOADING;
+        }
+        int offset = row - page * pageSize;
+        if (offset >= rows.length) return ""; // The result shrank since the total was read
+        return rows[offset][column];
+    }
+
+    public boolean isRowLoaded(int row) {
+        return pages.containsKey(row / pageSize);
+    }
+
+    /**
+     * Loads the pages covering the given rows plus one page on either side.
+     */
+    public void prefetch(int firstRow, int lastRow) {
+        if (rowCount == 0) return;
+        int firstPage = Math.max(0, firstRow / pageSize - 1);
+        int lastPage = Math.min((rowCount - 1) / pageSize, lastRow / pageSize + 1);
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!pages.containsKey(page)) load(page);
+        }
+    }
+
+    /**
+     * Stops loading pages. Call when the model is replaced.
+     */
+    public void dispose() {
+        disposed = true;
+        pages.clear();
+    }
+
+    private void load(int page) {
+        if (disposed || !loading.add(page)) return;
+        String body = new JSONObject(payload.toString())
+                .put("startAt", page * pageSize)
+                .put("maxResults", pageSize)
+                .toString();
+        service.submit(() -> {
+            List<Object[]> rows = new ArrayList<>(pageSize);
+            service.streamSearch(searchUrl, body, issue -> rows.add(mapper.toRow(issue)));
+            return rows;
+        }).whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+            loading.remove(page);
+            if (disposed) return;
+            if (error != null) {
+                errorHandler.accept(error instanceof Exception ? (Exception) error : new Exception(error));
+                return;
+            }
+            pages.put(page, rows.toArray(new Object[0][]));
+            int first = page * pageSize;
+            int last = Math.min(rowCount - 1, first + pageSize - 1);
+            fireTableRowsUpdated(first, last);
+        }));
+    }
+}
@@ -1,9 +1,12 @@
 package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
+import tso.usmc.jira.util.JsonPrettyPrinter;
+import tso.usmc.jira.util.SpillWriter;
 import tso.usmc.jira.util.JsonUtils;
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -13,6 +16,10 @@ public class RawApiPanel extends JPanel {
     private final JTextField endpointField = new JTextField("/rest/api/2/issue/TSO-123");
     private final JTextArea requestArea = new JTextArea();
     private final JTextArea responseArea = new JTextArea();
+    private final LargeTextViewer largeResponseViewer = new LargeTextViewer();
+    private final CardLayout responseCards = new CardLayout();
+    private final JPanel responsePanel = new JPanel(responseCards);
+    private File spilledResponse;
     private final JComboBox<ApiTemplate> templateCombo = new JComboBox<>();
     
     // Map to keep track of buttons for dynamic visibility
@@ -92,7 +99,9 @@ public class RawApiPanel extends JPanel {
         responseArea.setEditable(false);
         responseArea.setBackground(new Color(245, 245, 245));
         responseArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        add(new JScrollPane(responseArea), gbc);
+        responsePanel.add(new JScrollPane(responseArea), "text");
+        responsePanel.add(largeResponseViewer, "large");
+        add(responsePanel, gbc);
     }
 
     private void loadTemplates() {
@@ -147,17 +156,32 @@ public class RawApiPanel extends JPanel {
         
         responseArea.setForeground(Color.BLACK);
         responseArea.setText("Sending " + method + " request to: " + fullUrl + "...");
+        showResponseText();
+        int thresholdChars = mainFrame.getJiraConfig().getRawApiViewerThresholdKb(1024) * 1024;
         
         new Thread(() -> {
             try {
-                String rawResponse = mainFrame.getService().executeRequest(fullUrl, method, body);
-                final String formatted = (rawResponse == null || rawResponse.trim().isEmpty())
+                // Indent the body while it arrives; large responses go to a temp file instead of the heap.
+                SpillWriter out = mainFrame.getService().executeStreaming(fullUrl, method, body, in -> {
+                    SpillWriter spill = new SpillWriter(thresholdChars, "Jira_Response_");
+                    try (SpillWriter w = spill) {
+                        JsonPrettyPrinter.print(in, w);
+                    }
+                    return spill;
+                });
+                if (out.isSpilled()) {
+                    LargeTextViewer.MappedText text = LargeTextViewer.MappedText.open(out.getFile());
+                    SwingUtilities.invokeLater(() -> showLargeResponse(text));
+                    return;
+                }
+                final String formatted = out.toString().isEmpty()
                     ? "Request successful (204 No Content)"
-                    : JsonUtils.prettyPrintJson(rawResponse);
+                    : out.toString();
                 
                 SwingUtilities.invokeLater(() -> responseArea.setText(formatted));
             } catch (Exception ex) {
                 SwingUtilities.invokeLater(() -> {
+                    showResponseText();
                     responseArea.setForeground(Color.RED);
                     responseArea.setText("ERROR: " + ex.getMessage() + "\n\nStack Trace:\n" + getStackTrace(ex));
                 });
@@ -165,6 +189,29 @@ public class RawApiPanel extends JPanel {
         }).start();
     }
 
+    private void showLargeResponse(LargeTextViewer.MappedText text) {
+        deleteSpilledResponse();
+        spilledResponse = text.getFile();
+        responseArea.setText("");
+        largeResponseViewer.setText(text);
+        responseCards.show(responsePanel, "large");
+    }
+
+    private void showResponseText() {
+        responseCards.show(responsePanel, "text");
+    }
+
+    /**
+     * Best effort: the file may stay mapped until the viewer's buffer is collected, in which case
+     * it is deleted when the JVM exits.
+     */
+    private void deleteSpilledResponse() {
+        if (spilledResponse != null) {
+            spilledResponse.delete();
+            spilledResponse = null;
+        }
+    }
+
     private String getStackTrace(Exception e) {
         java.io.StringWriter sw = new java.io.StringWriter();
         e.printStackTrace(new java.io.PrintWriter(sw));
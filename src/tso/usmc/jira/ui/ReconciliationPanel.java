@@ -2,18 +2,24 @@ package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
 import tso.usmc.jira.service.JiraApiService;
+import tso.usmc.jira.service.PaginatedSearch;
+import tso.usmc.jira.service.ReconciliationSnapshot;
+import tso.usmc.jira.util.IspwReportParser;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +31,9 @@ public class ReconciliationPanel extends JPanel {
     private static final List<String> ISPW_PREFIXES = Arrays.asList(
             "COB", "PROC", "JCL", "SYS", "ASM", "COPY", "DMGR", "DCLG", "CMAP"
     );
+    /** Older snapshots are fetched again in full, which also drops deleted and moved sub-tasks. */
+    private static final long FULL_REFRESH_AFTER_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int SYNC_MARGIN_MINUTES = 2; // JQL dates have minute precision
 
     // Helper classes
     private static class JiraReconInfo {
@@ -48,18 +57,28 @@ public class ReconciliationPanel extends JPanel {
     // UI Components
     private final JTextArea jiraParentKeysArea = new JTextArea("TFS-49439\nTFS-35035");
     private final JButton fetchJiraBtn = new JButton("Fetch Jira Sub-tasks");
+    private final JCheckBox fullRefreshBox = new JCheckBox("Full re-fetch");
     private final JTextArea ispwReportArea = new JTextArea();
+    private final JButton loadIspwBtn = new JButton("Load ISPW Report from File...");
     private final JButton compareBtn = new JButton("Compare Jira vs. ISPW");
-    private final JLabel statusLabel = new JLabel("Ready. Fetch Jira tasks and paste ISPW report.");
+    private final JLabel statusLabel = new JLabel("Ready. Fetch Jira tasks and paste or load the ISPW report.");
 
-    private final DefaultTableModel onlyInIspwModel = new DefaultTableModel();
-    private final DefaultTableModel onlyInJiraModel = new DefaultTableModel();
+    private final RowTableModel onlyInIspwModel = new RowTableModel("Type", "Name", "Action", "SR Number", "User ID");
+    private final RowTableModel onlyInJiraModel = new RowTableModel("Type", "Name", "Parent Issue", "Assignee", "Status", "Link");
     private final JTable onlyInIspwTable = new JTable(onlyInIspwModel);
     private final JTable onlyInJiraTable = new JTable(onlyInJiraModel);
 
     // Data holders
     private Map<String, JiraReconInfo> jiraTaskMap = new HashMap<>();
     private Map<String, IspwReconInfo> ispwTaskMap = new HashMap<>();
+    private File ispwLoadedFrom; // Set while ispwTaskMap holds a loaded file rather than the pasted text
+    private boolean showingLoadedFile;
+    private ReconciliationSnapshot jiraSnapshot;
+
+    // The last comparison, so a refresh that changed a few tasks only has to look at those.
+    private Map<String, IspwReconInfo> comparedIspwMap;
+    private Set<String> onlyInIspwNames = Collections.emptySet();
+    private Set<String> onlyInJiraNames = Collections.emptySet();
 
     public ReconciliationPanel(JiraApiClientGui mainFrame) {
         this.mainFrame = mainFrame;
@@ -73,22 +92,24 @@ public class ReconciliationPanel extends JPanel {
         JScrollPane jiraScroll = new JScrollPane(jiraParentKeysArea);
         jiraScroll.setPreferredSize(new Dimension(0, 150)); 
         jiraPanel.add(jiraScroll, BorderLayout.CENTER);
-        jiraPanel.add(fetchJiraBtn, BorderLayout.SOUTH);
+        JPanel fetchPanel = new JPanel(new BorderLayout(5, 0));
+        fetchPanel.add(fetchJiraBtn, BorderLayout.CENTER);
+        fullRefreshBox.setToolTipText("Fetch every sub-task again instead of only those updated since the last fetch");
+        fetchPanel.add(fullRefreshBox, BorderLayout.EAST);
+        jiraPanel.add(fetchPanel, BorderLayout.SOUTH);
         topPanel.add(jiraPanel);
         JPanel ispwPanel = new JPanel(new BorderLayout(5, 5));
-        ispwPanel.setBorder(BorderFactory.createTitledBorder("2. Paste ISPW Report"));
+        ispwPanel.setBorder(BorderFactory.createTitledBorder("2. Paste or Load ISPW Report"));
         JScrollPane ispwScroll = new JScrollPane(ispwReportArea);
         ispwScroll.setPreferredSize(new Dimension(0, 150));
         ispwPanel.add(ispwScroll, BorderLayout.CENTER);
+        ispwPanel.add(loadIspwBtn, BorderLayout.SOUTH);
         topPanel.add(ispwPanel);
         JPanel comparePanel = new JPanel(new GridBagLayout());
         comparePanel.add(compareBtn);
         
         JTabbedPane resultsTabs = new JTabbedPane();
         
-        onlyInIspwModel.setColumnIdentifiers(new String[]{"Type", "Name", "Action", "SR Number", "User ID"});
-        onlyInJiraModel.setColumnIdentifiers(new String[]{"Type", "Name", "Parent Issue", "Assignee", "Status", "Link"});
-        
         onlyInIspwTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         onlyInJiraTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         
@@ -107,84 +128,170 @@ public class ReconciliationPanel extends JPanel {
 
         fetchJiraBtn.addActionListener(e -> fetchJiraTasks());
         compareBtn.addActionListener(e -> performComparison());
+        loadIspwBtn.addActionListener(e -> loadIspwReport());
+        // Typing or pasting after a load switches back to the text in the area.
+        ispwReportArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { ispwTextEdited(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { ispwTextEdited(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { }
+        });
     }
-    
-    private void performComparison() {
-        statusLabel.setText("Parsing ISPW report and performing comparison...");
-        this.ispwTaskMap = new HashMap<>();
-        String ispwText = ispwReportArea.getText();
-        
-        // Fetch bounds from config or use defaults
-        tso.usmc.jira.util.JiraConfig config = mainFrame.getJiraConfig();
-        int minLen = config.getIspwMinLineLength(65);
-        int[] typeBounds = config.getIspwColumnBounds("ci_type", new int[]{0, 4});
-        int[] nameBounds = config.getIspwColumnBounds("ci_name", new int[]{5, 13});
-        int[] srBounds = config.getIspwColumnBounds("sr", new int[]{30, 40});
-        int[] userBounds = config.getIspwColumnBounds("user", new int[]{41, 47});
-        int actionIdx = config.getIspwActionIndex(55);
-
-        for (String line : ispwText.split("\n")) {
-            try {
-                if (line.length() < minLen) continue;
-                String typePart = line.substring(typeBounds[0], typeBounds[1]).trim();
-                String namePart = line.substring(nameBounds[0], nameBounds[1]).trim();
-                
-                if (!typePart.isEmpty() && !namePart.isEmpty()) {
-                    String rawTaskName = typePart + " " + namePart;
-                    String normalizedName = rawTaskName.trim().replaceAll("\\s+", " ");
-                    IspwReconInfo info = new IspwReconInfo();
-                    info.fullTaskName = normalizedName;
-                    info.srNumber = line.substring(srBounds[0], srBounds[1]).trim();
-                    info.userId = line.substring(userBounds[0], userBounds[1]).trim();
-                    char actionChar = line.charAt(actionIdx);
-                    if (actionChar == 'C') info.action = "Compile-only";
-                    else if (actionChar == 'D') info.action = "Delete";
-                    else info.action = " ";
-                    this.ispwTaskMap.put(normalizedName, info);
-                }
-            } catch (Exception e) { System.err.println("Could not parse line: " + line); }
+
+    private void ispwTextEdited() {
+        if (!showingLoadedFile) {
+            ispwLoadedFrom = null;
+            comparedIspwMap = null; // The pasted text no longer matches the last comparison
         }
+    }
+
+    /**
+     * Reads a (possibly very large) ISPW extract from a file on a background thread, instead of
+     * pasting it into the text area.
+     */
+    private void loadIspwReport() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        IspwReportParser parser = IspwReportParser.fromConfig(mainFrame.getJiraConfig());
 
+        loadIspwBtn.setEnabled(false);
+        compareBtn.setEnabled(false);
+        statusLabel.setText("Reading ISPW report " + file.getName() + "...");
+        new Thread(() -> {
+            try {
+                Map<String, IspwReconInfo> tasks = new HashMap<>();
+                IspwReportParser.Result result = parser.parse(file, (taskName, sr, user, action) -> tasks.put(taskName, newIspwInfo(taskName, sr, user, action)),
+                        (read, total) -> SwingUtilities.invokeLater(() ->
+                                statusLabel.setText("Reading ISPW report " + file.getName() + ": " + (total == 0 ? 100 : read * 100 / total) + "%")));
+                SwingUtilities.invokeLater(() -> {
+                    this.ispwTaskMap = tasks;
+                    showingLoadedFile = true;
+                    ispwReportArea.setText("Loaded from " + file.getAbsolutePath() + "\n"
+                            + result.getRecords() + " task lines, " + tasks.size() + " unique tasks.\n\n"
+                            + "Type or paste here to compare against pasted text instead.");
+                    ispwReportArea.setCaretPosition(0);
+                    showingLoadedFile = false;
+                    ispwLoadedFrom = file;
+                    statusLabel.setText("Loaded " + tasks.size() + " ISPW tasks from " + file.getName()
+                            + (result.getMalformed() > 0 ? " (" + result.getMalformed() + " lines did not fit the configured columns)." : "."));
+                    loadIspwBtn.setEnabled(true);
+                    compareBtn.setEnabled(true);
+                });
+            } catch (Exception ex) {
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText("Error reading ISPW report: " + ex.getMessage());
+                    loadIspwBtn.setEnabled(true);
+                    compareBtn.setEnabled(true);
+                });
+            }
+        }).start();
+    }
+
+    private static IspwReconInfo newIspwInfo(String taskName, String srNumber, String userId, String action) {
+        IspwReconInfo info = new IspwReconInfo();
+        info.fullTaskName = taskName;
+        info.srNumber = srNumber;
+        info.userId = userId;
+        info.action = action;
+        return info;
+    }
+    
+    private void performComparison() {
         if (this.jiraTaskMap.isEmpty()) {
             statusLabel.setText("Jira data has not been fetched. Please click 'Fetch Jira Sub-tasks' first.");
             return;
         }
-        if (this.ispwTaskMap.isEmpty()) {
-            statusLabel.setText("No valid task names could be parsed from the ISPW report.");
-            return;
-        }
+        statusLabel.setText(ispwLoadedFrom == null ? "Parsing ISPW report and performing comparison..." : "Performing comparison...");
+        compareBtn.setEnabled(false);
+        String pastedText = ispwLoadedFrom == null ? ispwReportArea.getText() : null;
+        Map<String, JiraReconInfo> jiraTaskMap = this.jiraTaskMap;
+        IspwReportParser parser = IspwReportParser.fromConfig(mainFrame.getJiraConfig());
+        String baseUrl = mainFrame.getBaseUrl();
+
+        new Thread(() -> {
+            Map<String, IspwReconInfo> ispwTaskMap = this.ispwTaskMap;
+            if (pastedText != null) {
+                Map<String, IspwReconInfo> parsed = new HashMap<>();
+                parser.parse(pastedText, (taskName, sr, user, action) -> parsed.put(taskName, newIspwInfo(taskName, sr, user, action)));
+                ispwTaskMap = parsed;
+                SwingUtilities.invokeLater(() -> this.ispwTaskMap = parsed);
+            }
+            if (ispwTaskMap.isEmpty()) {
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText("No valid task names could be parsed from the ISPW report.");
+                    compareBtn.setEnabled(true);
+                });
+                return;
+            }
+            compare(jiraTaskMap, ispwTaskMap, baseUrl);
+        }).start();
+    }
 
+    /**
+     * Computes both differences and shows them. Runs off the EDT.
+     */
+    private void compare(Map<String, JiraReconInfo> jiraTaskMap, Map<String, IspwReconInfo> ispwTaskMap, String baseUrl) {
         Set<String> ispwKeys = ispwTaskMap.keySet();
         Set<String> jiraKeys = jiraTaskMap.keySet();
         Set<String> onlyInIspw = new HashSet<>(ispwKeys);
         onlyInIspw.removeAll(jiraKeys);
         Set<String> onlyInJira = new HashSet<>(jiraKeys);
         onlyInJira.removeAll(ispwKeys);
-        
-        SwingUtilities.invokeLater(() -> {
-            onlyInIspwModel.setRowCount(0);
-            for (String key : onlyInIspw) {
-                IspwReconInfo info = ispwTaskMap.get(key);
-                String[] parts = info.fullTaskName.split(" ", 2);
-                String type = (parts.length > 0) ? parts[0] : info.fullTaskName;
-                String name = (parts.length > 1) ? parts[1] : "";
-                onlyInIspwModel.addRow(new Object[]{type, name, info.action, info.srNumber, info.userId});
-            }
+        showComparison(jiraTaskMap, ispwTaskMap, onlyInIspw, onlyInJira, baseUrl, "Comparison Complete: ");
+    }
 
-            onlyInJiraModel.setRowCount(0);
-            for (String key : onlyInJira) {
-                JiraReconInfo info = jiraTaskMap.get(key);
-                String[] parts = info.subtaskSummary.split(" ", 2);
-                String type = (parts.length > 0) ? parts[0] : info.subtaskSummary;
-                String name = (parts.length > 1) ? parts[1] : "";
-                String link = mainFrame.getBaseUrl() + "/browse/" + info.subtaskKey;
-                onlyInJiraModel.addRow(new Object[]{type, name, info.parentSummary, info.assignee, info.status, link});
-            }
+    /**
+     * Updates the last comparison for the task names a refresh changed, instead of comparing
+     * everything again. Runs off the EDT.
+     */
+    private void updateComparison(Map<String, JiraReconInfo> jiraTaskMap, Map<String, IspwReconInfo> ispwTaskMap,
+                                  Set<String> onlyInIspwBefore, Set<String> onlyInJiraBefore, Set<String> changedNames, String baseUrl) {
+        Set<String> onlyInIspw = new HashSet<>(onlyInIspwBefore);
+        Set<String> onlyInJira = new HashSet<>(onlyInJiraBefore);
+        for (String name : changedNames) {
+            boolean inJira = jiraTaskMap.containsKey(name);
+            boolean inIspw = ispwTaskMap.containsKey(name);
+            if (inIspw && !inJira) onlyInIspw.add(name); else onlyInIspw.remove(name);
+            if (inJira && !inIspw) onlyInJira.add(name); else onlyInJira.remove(name);
+        }
+        showComparison(jiraTaskMap, ispwTaskMap, onlyInIspw, onlyInJira, baseUrl,
+                "Comparison updated (" + changedNames.size() + " changed tasks): ");
+    }
+
+    private void showComparison(Map<String, JiraReconInfo> jiraTaskMap, Map<String, IspwReconInfo> ispwTaskMap,
+                                Set<String> onlyInIspw, Set<String> onlyInJira, String baseUrl, String statusPrefix) {
+        // Build the rows first, then hand each table all of them in one event.
+        List<Object[]> ispwRows = new ArrayList<>(onlyInIspw.size());
+        for (String key : onlyInIspw) {
+            IspwReconInfo info = ispwTaskMap.get(key);
+            String[] parts = info.fullTaskName.split(" ", 2);
+            String type = (parts.length > 0) ? parts[0] : info.fullTaskName;
+            String name = (parts.length > 1) ? parts[1] : "";
+            ispwRows.add(new Object[]{type, name, info.action, info.srNumber, info.userId});
+        }
+
+        List<Object[]> jiraRows = new ArrayList<>(onlyInJira.size());
+        for (String key : onlyInJira) {
+            JiraReconInfo info = jiraTaskMap.get(key);
+            String[] parts = info.subtaskSummary.split(" ", 2);
+            String type = (parts.length > 0) ? parts[0] : info.subtaskSummary;
+            String name = (parts.length > 1) ? parts[1] : "";
+            String link = baseUrl + "/browse/" + info.subtaskKey;
+            jiraRows.add(new Object[]{type, name, info.parentSummary, info.assignee, info.status, link});
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            onlyInIspwModel.setRows(ispwRows);
+            onlyInJiraModel.setRows(jiraRows);
 
             autoResizeColumnWidths(onlyInIspwTable);
             autoResizeColumnWidths(onlyInJiraTable);
             
-            statusLabel.setText("Comparison Complete: " + onlyInIspw.size() + " items only in ISPW. " + onlyInJira.size() + " items only in Jira.");
+            comparedIspwMap = ispwTaskMap;
+            onlyInIspwNames = onlyInIspw;
+            onlyInJiraNames = onlyInJira;
+            statusLabel.setText(statusPrefix + onlyInIspw.size() + " items only in ISPW. " + onlyInJira.size() + " items only in Jira.");
+            compareBtn.setEnabled(true);
         });
     }
 
@@ -195,7 +302,9 @@ public class ReconciliationPanel extends JPanel {
             TableCellRenderer headerRenderer = table.getTableHeader().getDefaultRenderer();
             Component headerComp = headerRenderer.getTableCellRendererComponent(table, columnModel.getColumn(column).getHeaderValue(), false, false, 0, column);
             width = Math.max(width, headerComp.getPreferredSize().width);
-            for (int row = 0; row < table.getRowCount(); row++) {
+            // The first rows are enough to size a column; measuring every row of a large result stalls the EDT.
+            int sampledRows = Math.min(table.getRowCount(), 500);
+            for (int row = 0; row < sampledRows; row++) {
                 TableCellRenderer renderer = table.getCellRenderer(row, column);
                 Component comp = table.prepareRenderer(renderer, row, column);
                 width = Math.max(width, comp.getPreferredSize().width);
@@ -204,35 +313,65 @@ public class ReconciliationPanel extends JPanel {
         }
     }
     
+    /**
+     * Brings the Jira side up to date. The sub-tasks are kept in a snapshot per set of input keys
+     * (next to the local issue store); after the first fetch only what was updated since the
+     * last one is downloaded, and an earlier comparison is updated for just the changed tasks.
+     */
     private void fetchJiraTasks() {
         String[] topLevelKeys = jiraParentKeysArea.getText().trim().toUpperCase().split("\\s+");
         if (topLevelKeys.length == 0 || (topLevelKeys.length == 1 && topLevelKeys[0].isEmpty())) {
             JOptionPane.showMessageDialog(this, "Please enter at least one Jira Parent/Epic key.");
             return;
         }
+        boolean forceFull = fullRefreshBox.isSelected();
         fetchJiraBtn.setEnabled(false);
         statusLabel.setText("Fetching Jira data...");
         new Thread(() -> {
             try {
                 JiraApiService service = mainFrame.getService();
                 String baseUrl = mainFrame.getBaseUrl();
-                SwingUtilities.invokeLater(() -> statusLabel.setText("Step 1/3: Fetching top-level summaries..."));
-                Map<String, String> topLevelSummaries = fetchIssueSummaries(service, baseUrl, topLevelKeys);
-                SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 2/3: Fetching stories..."));
-                Map<String, String> storySummaries = fetchStoriesInEpics(service, baseUrl, topLevelKeys);
-                Map<String, String> allParentSummaries = new HashMap<>(topLevelSummaries);
-                allParentSummaries.putAll(storySummaries);
-                Set<String> allPotentialParentKeys = new HashSet<>(allParentSummaries.keySet());
-                SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 3/3: Fetching all sub-tasks..."));
-                List<JiraReconInfo> fetchedTasks = fetchAllSubtaskInfo(service, baseUrl, allPotentialParentKeys);
-                this.jiraTaskMap = new HashMap<>();
-                for (JiraReconInfo task : fetchedTasks) {
-                    task.parentSummary = allParentSummaries.getOrDefault(task.parentKey, "N/A");
-                    this.jiraTaskMap.put(task.subtaskSummary, task);
+                ReconciliationSnapshot snapshot = jiraSnapshot;
+                if (snapshot == null || !snapshot.isFor(Arrays.asList(topLevelKeys))) {
+                    File storeDir = service.getIssueStore(baseUrl).getDirectory();
+                    snapshot = ReconciliationSnapshot.open(storeDir == null ? null : new File(storeDir, "recon"), Arrays.asList(topLevelKeys));
+                }
+                long started = System.currentTimeMillis();
+                boolean full = forceFull || snapshot.isEmpty() || started - snapshot.getLastSync() > FULL_REFRESH_AFTER_MILLIS;
+                Set<String> changedNames = new HashSet<>();
+                if (full) {
+                    fetchAll(service, baseUrl, topLevelKeys, snapshot);
+                } else {
+                    fetchChanges(service, baseUrl, topLevelKeys, snapshot, changedNames);
                 }
+                snapshot.setLastSync(started);
+                try {
+                    snapshot.save();
+                } catch (IOException e) {
+                    System.err.println("Could not save the reconciliation snapshot: " + e.getMessage());
+                }
+
+                Map<String, JiraReconInfo> taskMap = toTaskMap(snapshot);
+                ReconciliationSnapshot fetched = snapshot;
                 SwingUtilities.invokeLater(() -> {
-                    statusLabel.setText("Success! Fetched " + this.jiraTaskMap.size() + " unique, ISPW-related Jira sub-tasks.");
+                    this.jiraSnapshot = fetched;
+                    this.jiraTaskMap = taskMap;
+                    statusLabel.setText(full
+                            ? "Success! Fetched " + taskMap.size() + " unique, ISPW-related Jira sub-tasks."
+                            : "Success! " + taskMap.size() + " unique, ISPW-related Jira sub-tasks (" + changedNames.size() + " changed since the last fetch).");
                     fetchJiraBtn.setEnabled(true);
+                    // Bring a comparison that is on screen up to date right away.
+                    Map<String, IspwReconInfo> ispw = comparedIspwMap;
+                    if (ispw != null && ispw == ispwTaskMap && compareBtn.isEnabled()) {
+                        compareBtn.setEnabled(false);
+                        Set<String> onlyInIspw = onlyInIspwNames;
+                        Set<String> onlyInJira = onlyInJiraNames;
+                        if (full) {
+                            new Thread(() -> compare(taskMap, ispw, baseUrl)).start();
+                        } else {
+                            new Thread(() -> updateComparison(taskMap, ispw, onlyInIspw, onlyInJira, changedNames, baseUrl)).start();
+                        }
+                    }
                 });
             } catch (Exception ex) {
                 StringWriter sw = new StringWriter();
@@ -245,6 +384,125 @@ public class ReconciliationPanel extends JPanel {
             }
         }).start();
     }
+
+    private void fetchAll(JiraApiService service, String baseUrl, String[] topLevelKeys, ReconciliationSnapshot snapshot) throws Exception {
+        snapshot.clear(); // Stays empty if the fetch fails, so the next one is full again
+        SwingUtilities.invokeLater(() -> statusLabel.setText("Step 1/3: Fetching top-level summaries..."));
+        Map<String, String> topLevelSummaries = fetchIssueSummaries(service, baseUrl, topLevelKeys);
+        SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 2/3: Fetching stories..."));
+        Map<String, String> storySummaries = fetchStoriesInEpics(service, baseUrl, topLevelKeys);
+        Map<String, String> allParentSummaries = new HashMap<>(topLevelSummaries);
+        allParentSummaries.putAll(storySummaries);
+        Set<String> allPotentialParentKeys = new HashSet<>(allParentSummaries.keySet());
+        SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 3/3: Fetching all sub-tasks..."));
+        List<ReconciliationSnapshot.Task> fetchedTasks = fetchAllSubtaskInfo(service, baseUrl, allPotentialParentKeys);
+        for (Map.Entry<String, String> e : allParentSummaries.entrySet()) {
+            snapshot.putParent(e.getKey(), e.getValue());
+        }
+        for (ReconciliationSnapshot.Task task : fetchedTasks) {
+            snapshot.putTask(task);
+        }
+    }
+
+    /**
+     * Applies what changed since the snapshot's last fetch: updated stories of the epics and
+     * updated sub-tasks of every known parent. Sub-tasks that were canceled or no longer look
+     * like ISPW tasks are dropped. Deleted sub-tasks and sub-tasks moved to another parent are
+     * not seen by these searches; the daily full fetch removes them.
+     */
+    private void fetchChanges(JiraApiService service, String baseUrl, String[] topLevelKeys, ReconciliationSnapshot snapshot,
+                              Set<String> changedNames) throws Exception {
+        // A relative date does not depend on the time zone of the Jira user.
+        long minutes = (System.currentTimeMillis() - snapshot.getLastSync()) / 60000 + SYNC_MARGIN_MINUTES;
+        String since = " AND updated >= -" + minutes + "m";
+        Map<String, String> parents = snapshot.getParentSummaries(); // As of the last fetch
+        Set<String> changedParents = new HashSet<>();
+        Set<String> newParents = new LinkedHashSet<>();
+
+        SwingUtilities.invokeLater(() -> statusLabel.setText("Step 1/3: Fetching top-level summaries..."));
+        for (Map.Entry<String, String> e : fetchIssueSummaries(service, baseUrl, topLevelKeys).entrySet()) {
+            String previous = parents.get(e.getKey());
+            if (previous == null) newParents.add(e.getKey()); // An input key that did not exist at the last fetch
+            else if (!previous.equals(e.getValue())) changedParents.add(e.getKey());
+            snapshot.putParent(e.getKey(), e.getValue());
+        }
+
+        SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 2/3: Fetching changed stories..."));
+        if (!newParents.isEmpty()) {
+            for (Map.Entry<String, String> e : fetchStoriesInEpics(service, baseUrl, newParents.toArray(new String[0])).entrySet()) {
+                if (!parents.containsKey(e.getKey())) newParents.add(e.getKey());
+                snapshot.putParent(e.getKey(), e.getValue());
+            }
+        }
+        search(service, baseUrl, String.format("\"Epic Link\" in (%s)", String.join(",", topLevelKeys)) + since,
+                Collections.singletonList("summary"), issue -> {
+            String key = issue.getString("key");
+            String summary = issue.getJSONObject("fields").getString("summary");
+            if (!parents.containsKey(key)) newParents.add(key);
+            else if (!summary.equals(parents.get(key))) changedParents.add(key);
+            snapshot.putParent(key, summary);
+        });
+
+        SwingUtilities.invokeLater(() -> statusLabel.setText(statusLabel.getText() + " | Step 3/3: Fetching changed sub-tasks..."));
+        List<String> knownParents = new ArrayList<>(parents.keySet());
+        knownParents.removeAll(newParents);
+        Collections.sort(knownParents);
+        List<String> subtaskFields = Arrays.asList("summary", "parent", "assignee", "status");
+        int batchSize = 200;
+        for (int i = 0; i < knownParents.size(); i += batchSize) {
+            List<String> batch = knownParents.subList(i, Math.min(i + batchSize, knownParents.size()));
+            // No status filter: a sub-task that was just canceled has to be seen to be dropped.
+            search(service, baseUrl, "parent in (" + String.join(",", batch) + ")" + since, subtaskFields,
+                    issue -> applyChange(snapshot, issue, changedNames));
+        }
+        for (ReconciliationSnapshot.Task task : fetchAllSubtaskInfo(service, baseUrl, new HashSet<>(newParents))) {
+            ReconciliationSnapshot.Task old = snapshot.putTask(task);
+            if (old != null) changedNames.add(old.getName());
+            changedNames.add(task.getName());
+        }
+
+        // A renamed parent changes the "Parent Issue" column of its tasks.
+        if (!changedParents.isEmpty()) {
+            for (ReconciliationSnapshot.Task task : snapshot.getTasks()) {
+                if (changedParents.contains(task.getParentKey())) changedNames.add(task.getName());
+            }
+        }
+    }
+
+    private void applyChange(ReconciliationSnapshot snapshot, JSONObject issue, Set<String> changedNames) {
+        ReconciliationSnapshot.Task task = toTask(issue);
+        if (task != null && "Canceled".equalsIgnoreCase(task.getStatus())) {
+            task = null;
+        }
+        ReconciliationSnapshot.Task old = task == null ? snapshot.removeTask(issue.getString("key")) : snapshot.putTask(task);
+        if (old != null) changedNames.add(old.getName());
+        if (task != null) changedNames.add(task.getName());
+    }
+
+    private void search(JiraApiService service, String baseUrl, String jql, List<String> fields,
+                        tso.usmc.jira.service.SearchStreamReader.IssueCallback callback) throws Exception {
+        JSONObject payload = new JSONObject().put("jql", jql).put("fields", new JSONArray(fields));
+        new PaginatedSearch(service, baseUrl + "/rest/api/2/search", PaginatedSearch.Mode.AUTO).run(payload, 500, callback);
+    }
+
+    /**
+     * One entry per task name, as the comparison matches them.
+     */
+    private static Map<String, JiraReconInfo> toTaskMap(ReconciliationSnapshot snapshot) {
+        Map<String, String> parents = snapshot.getParentSummaries();
+        Map<String, JiraReconInfo> taskMap = new HashMap<>();
+        for (ReconciliationSnapshot.Task task : snapshot.getTasks()) {
+            JiraReconInfo info = new JiraReconInfo();
+            info.subtaskKey = task.getKey();
+            info.subtaskSummary = task.getName();
+            info.parentKey = task.getParentKey();
+            info.parentSummary = parents.getOrDefault(task.getParentKey(), "N/A");
+            info.assignee = task.getAssignee();
+            info.status = task.getStatus();
+            taskMap.put(task.getName(), info);
+        }
+        return taskMap;
+    }
     
     private Map<String, String> fetchIssueSummaries(JiraApiService service, String baseUrl, String[] keys) throws Exception {
          Map<String, String> summaries = new HashMap<>();
@@ -264,76 +522,57 @@ public class ReconciliationPanel extends JPanel {
         Map<String, String> storySummaries = new HashMap<>();
         if (epicKeys.length == 0) return storySummaries;
         String jql = String.format("\"Epic Link\" in (%s)", String.join(",", epicKeys));
-        int startAt = 0;
-        int total;
-        do {
-            JSONObject payload = new JSONObject()
-                .put("jql", jql)
-                .put("fields", new JSONArray().put("key").put("summary"))
-                .put("startAt", startAt)
-                .put("maxResults", 500); 
-            String response = service.executeRequest(baseUrl + "/rest/api/2/search", "POST", payload.toString());
-            JSONObject responseJson = new JSONObject(response);
-            total = responseJson.getInt("total");
-            JSONArray issues = responseJson.getJSONArray("issues");
-            for (int i = 0; i < issues.length(); i++) {
-                JSONObject issue = issues.getJSONObject(i);
-                storySummaries.put(issue.getString("key"), issue.getJSONObject("fields").getString("summary"));
-            }
-            startAt += issues.length();
-        } while (startAt < total);
+        // Read from Jira, not the issue store: the snapshot keeps what is incremental, and a full fetch means all of it.
+        search(service, baseUrl, jql, Collections.singletonList("summary"),
+                issue -> storySummaries.put(issue.getString("key"), issue.getJSONObject("fields").getString("summary")));
         return storySummaries;
     }
 
-    private List<JiraReconInfo> fetchAllSubtaskInfo(JiraApiService service, String baseUrl, Set<String> parentKeys) throws Exception {
-        List<JiraReconInfo> tasks = new ArrayList<>();
+    private List<ReconciliationSnapshot.Task> fetchAllSubtaskInfo(JiraApiService service, String baseUrl, Set<String> parentKeys) throws Exception {
+        List<ReconciliationSnapshot.Task> tasks = new ArrayList<>();
         if (parentKeys.isEmpty()) return tasks;
         List<String> parentKeyList = new ArrayList<>(parentKeys);
+        Collections.sort(parentKeyList);
         int batchSize = 200; 
         for (int i = 0; i < parentKeyList.size(); i += batchSize) {
             List<String> batch = parentKeyList.subList(i, Math.min(i + batchSize, parentKeyList.size()));
             String jql = "parent in (" + String.join(",", batch) + ") AND status != Canceled";
-            int startAt = 0;
-            int total;
-            do {
-                JSONObject payload = new JSONObject()
-                    .put("jql", jql)
-                    .put("fields", new JSONArray().put("summary").put("parent").put("assignee").put("status"))
-                    .put("startAt", startAt)
-                    .put("maxResults", 500);
-                String response = service.executeRequest(baseUrl + "/rest/api/2/search", "POST", payload.toString());
-                JSONObject responseJson = new JSONObject(response);
-                total = responseJson.getInt("total");
-                JSONArray issues = responseJson.getJSONArray("issues");
-                for (int j = 0; j < issues.length(); j++) {
-                    JSONObject issue = issues.getJSONObject(j);
-                    JSONObject fields = issue.getJSONObject("fields");
-                    String rawSummary = fields.getString("summary");
-                    String tempSummary = rawSummary.trim().replaceAll("\\s+", " ");
-                    String[] parts = tempSummary.split(" ");
-                    String normalizedSummary;
-                    if (parts.length >= 2) {
-                        normalizedSummary = parts[0] + " " + parts[1];
-                    } else {
-                        normalizedSummary = tempSummary;
-                    }
-                    if (ISPW_PREFIXES.stream().anyMatch(prefix -> normalizedSummary.startsWith(prefix))) {
-                        JiraReconInfo info = new JiraReconInfo();
-                        info.subtaskKey = issue.getString("key");
-                        info.subtaskSummary = normalizedSummary;
-                        info.parentKey = fields.getJSONObject("parent").getString("key");
-                        if (fields.has("assignee") && !fields.isNull("assignee")) {
-                            info.assignee = fields.getJSONObject("assignee").getString("displayName");
-                        }
-                        if (fields.has("status") && !fields.isNull("status")) {
-                            info.status = fields.getJSONObject("status").getString("name");
-                        }
-                        tasks.add(info);
-                    }
+            search(service, baseUrl, jql, Arrays.asList("summary", "parent", "assignee", "status"), issue -> {
+                ReconciliationSnapshot.Task task = toTask(issue);
+                if (task != null) {
+                    tasks.add(task);
                 }
-                startAt += issues.length();
-            } while (startAt < total);
+            });
         }
         return tasks;
     }
+
+    /**
+     * The reconciliation view of a sub-task, or null when its summary is not an ISPW task name.
+     */
+    private static ReconciliationSnapshot.Task toTask(JSONObject issue) {
+        JSONObject fields = issue.getJSONObject("fields");
+        String rawSummary = fields.getString("summary");
+        String tempSummary = rawSummary.trim().replaceAll("\\s+", " ");
+        String[] parts = tempSummary.split(" ");
+        String normalizedSummary;
+        if (parts.length >= 2) {
+            normalizedSummary = parts[0] + " " + parts[1];
+        } else {
+            normalizedSummary = tempSummary;
+        }
+        if (!ISPW_PREFIXES.stream().anyMatch(prefix -> normalizedSummary.startsWith(prefix))) {
+            return null;
+        }
+        String assignee = "Unassigned";
+        String status = "N/A";
+        if (fields.has("assignee") && !fields.isNull("assignee")) {
+            assignee = fields.getJSONObject("assignee").getString("displayName");
+        }
+        if (fields.has("status") && !fields.isNull("status")) {
+            status = fields.getJSONObject("status").getString("name");
+        }
+        return new ReconciliationSnapshot.Task(issue.getString("key"), normalizedSummary,
+                fields.getJSONObject("parent").getString("key"), assignee, status);
+    }
 }
@@ -2,29 +2,39 @@ package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
 import tso.usmc.jira.service.JiraApiService;
-import tso.usmc.jira.util.JsonUtils;
+import tso.usmc.jira.util.JsonPrettyPrinter;
 import javax.swing.*;
 import java.awt.*;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class ReportPanel extends JPanel {
 
+    private static final int JSON_REPORT_BATCH_SIZE = 100;
+
     private static final List<String> ISPW_PREFIXES = Arrays.asList(
             "COB", "PROC", "JCL", "SYS", "ASM", "COPY", "DMGR", "DCLG", "CMAP"
     );
@@ -42,6 +52,103 @@ public class ReportPanel extends JPanel {
         String epicKey;
     }
 
+    /**
+     * Epic -> story -> sub-task index for the sub-task report, filled while fetching.
+     *
+     * The report lines of each parent are built and sorted once; the section of an epic is a
+     * k-way merge of the sorted lines of the epic itself and of its stories, written straight
+     * to the report. Assembly is linear in the number of sub-tasks (times log of the stories
+     * per epic), however many epics there are.
+     */
+    private static class ReportIndex {
+        private final Map<String, List<StoryInfo>> storiesByEpic = new HashMap<>();
+        private final Set<String> storyKeys = new HashSet<>();
+        private final Map<String, List<SubtaskInfo>> subtasksByParent = new HashMap<>();
+        private final Map<String, List<String>> sortedLines = new HashMap<>();
+
+        private static final class Cursor {
+            final List<String> lines;
+            int pos;
+
+            Cursor(List<String> lines) {
+                this.lines = lines;
+            }
+
+            String current() {
+                return lines.get(pos);
+            }
+        }
+
+        void addStory(StoryInfo story) {
+            storiesByEpic.computeIfAbsent(story.epicKey, k -> new ArrayList<>()).add(story);
+            storyKeys.add(story.key);
+        }
+
+        void addSubtask(SubtaskInfo subtask) {
+            subtasksByParent.computeIfAbsent(subtask.parentKey, k -> new ArrayList<>()).add(subtask);
+        }
+
+        Set<String> getStoryKeys() {
+            return storyKeys;
+        }
+
+        /**
+         * Writes the sorted sub-task lines of the epic and its stories.
+         * @return The number of lines written.
+         */
+        int writeSection(String topKey, String topSummary, Writer out) throws IOException {
+            List<Cursor> sources = new ArrayList<>();
+            addSource(sources, topKey, topSummary);
+            for (StoryInfo story : storiesByEpic.getOrDefault(topKey, Collections.emptyList())) {
+                addSource(sources, story.key, story.summary);
+            }
+            int written = 0;
+            if (sources.size() == 1) {
+                for (String line : sources.get(0).lines) {
+                    out.write(line);
+                    out.write('\n');
+                    written++;
+                }
+                return written;
+            }
+            PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, sources.size()),
+                    (a, b) -> a.current().compareTo(b.current()));
+            queue.addAll(sources);
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                out.write(cursor.current());
+                out.write('\n');
+                written++;
+                if (++cursor.pos < cursor.lines.size()) {
+                    queue.add(cursor);
+                }
+            }
+            return written;
+        }
+
+        private void addSource(List<Cursor> sources, String parentKey, String parentSummary) {
+            List<SubtaskInfo> subtasks = subtasksByParent.get(parentKey);
+            if (subtasks == null) return;
+            // A key that is both an input key and a story is listed under each, possibly with different summaries.
+            List<String> lines = sortedLines.computeIfAbsent(parentKey + "\u0000" + parentSummary, k -> {
+                List<String> built = new ArrayList<>(subtasks.size());
+                StringBuilder sb = new StringBuilder();
+                for (SubtaskInfo subtask : subtasks) {
+                    sb.setLength(0);
+                    sb.append("  - ").append(subtask.summary)
+                      .append(" [").append(subtask.key)
+                      .append("] [").append(subtask.assignee)
+                      .append("] [").append(parentSummary)
+                      .append("] [").append(parentKey).append(']');
+                    built.add(sb.toString());
+                }
+                Collections.sort(built);
+                return built;
+            });
+            sources.add(new Cursor(lines));
+        }
+    }
+
     private final JiraApiClientGui mainFrame;
     private final JTextArea inputKeysArea = new JTextArea();
     private final JTextArea errorArea = new JTextArea();
@@ -92,62 +199,39 @@ public class ReportPanel extends JPanel {
         errorArea.setText("Starting report generation...");
         errorArea.setForeground(Color.BLUE);
         setButtonsEnabled(false);
-        final StringBuilder reportContent = new StringBuilder();
 
         new Thread(() -> {
+            File reportFile = null;
             boolean reportGeneratedSuccessfully = false;
             try {
                 JiraApiService service = mainFrame.getService();
                 String baseUrl = mainFrame.getBaseUrl();
-                
-                reportContent.append("JIRA SUB-TASK DETAIL REPORT GENERATED: ").append(new java.util.Date()).append("\n");
-                reportContent.append("====================================================\n\n");
+                ReportIndex index = new ReportIndex();
 
                 SwingUtilities.invokeLater(() -> errorArea.setText("Step 1: Fetching summaries for top-level keys..."));
                 Map<String, String> topLevelSummaries = fetchIssueSummaries(service, baseUrl, topLevelKeys);
 
                 SwingUtilities.invokeLater(() -> errorArea.append("\nStep 2: Fetching all stories within epics (with pagination)..."));
-                List<StoryInfo> storiesInEpics = fetchStoriesInEpics(service, baseUrl, topLevelKeys);
-                Map<String, StoryInfo> storyMap = storiesInEpics.stream().collect(Collectors.toMap(s -> s.key, s -> s));
+                fetchStoriesInEpics(service, baseUrl, topLevelKeys, index);
 
                 Set<String> allPotentialParentKeys = new HashSet<>(Arrays.asList(topLevelKeys));
-                allPotentialParentKeys.addAll(storyMap.keySet());
+                allPotentialParentKeys.addAll(index.getStoryKeys());
                 
                 SwingUtilities.invokeLater(() -> errorArea.append("\nStep 3: Fetching all sub-tasks (with pagination)..."));
-                Map<String, List<SubtaskInfo>> subtasksByParent = fetchSubtasksOf(service, baseUrl, allPotentialParentKeys, filterIspwTypes);
+                fetchSubtasksOf(service, baseUrl, allPotentialParentKeys, filterIspwTypes, index);
 
                 SwingUtilities.invokeLater(() -> errorArea.append("\nStep 4: Assembling final report..."));
-                for (String topKey : topLevelKeys) {
-                    reportContent.append("PARENT/EPIC: ").append(topKey)
-                                 .append(" (").append(topLevelSummaries.getOrDefault(topKey, "Unknown Summary")).append(")\n");
-                    
-                    List<String> formattedLines = new ArrayList<>();
-                    if (subtasksByParent.containsKey(topKey)) {
-                        String parentSummary = topLevelSummaries.get(topKey);
-                        for (SubtaskInfo subtask : subtasksByParent.get(topKey)) {
-                            String line = String.format("  - %s [%s] [%s] [%s] [%s]",
-                                subtask.summary, subtask.key, subtask.assignee, parentSummary, topKey);
-                            formattedLines.add(line);
-                        }
-                    }
-                    for (StoryInfo story : storiesInEpics) {
-                        if (topKey.equals(story.epicKey) && subtasksByParent.containsKey(story.key)) {
-                            for (SubtaskInfo subtask : subtasksByParent.get(story.key)) {
-                                String line = String.format("  - %s [%s] [%s] [%s] [%s]",
-                                    subtask.summary, subtask.key, subtask.assignee, story.summary, story.key);
-                                formattedLines.add(line);
-                            }
-                        }
-                    }
-                    if (formattedLines.isEmpty()) {
-                        reportContent.append(filterIspwTypes ? "  (No matching sub-tasks found)\n" : "  (No sub-tasks found)\n");
-                    } else {
-                        Collections.sort(formattedLines);
-                        for (String line : formattedLines) {
-                            reportContent.append(line).append("\n");
+                reportFile = File.createTempFile("Jira_Report_", ".txt");
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+                    writer.write("JIRA SUB-TASK DETAIL REPORT GENERATED: " + new java.util.Date() + "\n");
+                    writer.write("====================================================\n\n");
+                    for (String topKey : topLevelKeys) {
+                        writer.write("PARENT/EPIC: " + topKey + " (" + topLevelSummaries.getOrDefault(topKey, "Unknown Summary") + ")\n");
+                        if (index.writeSection(topKey, topLevelSummaries.get(topKey), writer) == 0) {
+                            writer.write(filterIspwTypes ? "  (No matching sub-tasks found)\n" : "  (No sub-tasks found)\n");
                         }
+                        writer.write("\n");
                     }
-                    reportContent.append("\n");
                 }
                 
                 reportGeneratedSuccessfully = true;
@@ -162,7 +246,9 @@ public class ReportPanel extends JPanel {
             } finally {
                 SwingUtilities.invokeLater(() -> setButtonsEnabled(true));
                 if (reportGeneratedSuccessfully) {
-                    saveAndOpenFile(reportContent.toString());
+                    openFile(reportFile);
+                } else if (reportFile != null) {
+                    reportFile.delete();
                 }
             }
         }).start();
@@ -185,93 +271,53 @@ public class ReportPanel extends JPanel {
     }
     
     // This method has the pagination fix
-    private List<StoryInfo> fetchStoriesInEpics(JiraApiService service, String baseUrl, String[] epicKeys) throws Exception {
+    private void fetchStoriesInEpics(JiraApiService service, String baseUrl, String[] epicKeys, ReportIndex index) throws Exception {
         final String EPIC_LINK_FIELD_ID = "customfield_13056";
-        List<StoryInfo> stories = new ArrayList<>();
-        if (epicKeys.length == 0) return stories;
+        if (epicKeys.length == 0) return;
         
         String jql = String.format("\"Epic Link\" in (%s)", String.join(",", epicKeys));
-        int startAt = 0;
-        int total;
-        
-        do {
-            JSONObject payload = new JSONObject()
-                .put("jql", jql)
-                .put("fields", new JSONArray().put("summary").put(EPIC_LINK_FIELD_ID))
-                .put("startAt", startAt)
-                .put("maxResults", 100); 
-
-            String response = service.executeRequest(baseUrl + "/rest/api/2/search", "POST", payload.toString());
-            JSONObject responseJson = new JSONObject(response);
-
-            total = responseJson.getInt("total");
-            JSONArray issues = responseJson.getJSONArray("issues");
-
-            for (int i = 0; i < issues.length(); i++) {
-                JSONObject issue = issues.getJSONObject(i);
-                JSONObject fields = issue.getJSONObject("fields");
-                if (fields.has(EPIC_LINK_FIELD_ID) && !fields.isNull(EPIC_LINK_FIELD_ID)) {
-                    StoryInfo story = new StoryInfo();
-                    story.key = issue.getString("key");
-                    story.summary = fields.getString("summary");
-                    story.epicKey = fields.getString(EPIC_LINK_FIELD_ID);
-                    stories.add(story);
-                }
+        // Served from the local issue store; only issues changed since the last run are downloaded.
+        service.getIssueStore(baseUrl).sync(jql, Arrays.asList("summary", EPIC_LINK_FIELD_ID), issue -> {
+            JSONObject fields = issue.getJSONObject("fields");
+            if (fields.has(EPIC_LINK_FIELD_ID) && !fields.isNull(EPIC_LINK_FIELD_ID)) {
+                StoryInfo story = new StoryInfo();
+                story.key = issue.getString("key");
+                story.summary = fields.getString("summary");
+                story.epicKey = fields.getString(EPIC_LINK_FIELD_ID);
+                index.addStory(story);
             }
-            startAt += issues.length();
-        } while (startAt < total);
-        
-        return stories;
+        });
     }
 
     // This method also has the pagination and batching fix
-    private Map<String, List<SubtaskInfo>> fetchSubtasksOf(JiraApiService service, String baseUrl, Set<String> parentKeys, boolean filter) throws Exception {
-        Map<String, List<SubtaskInfo>> subtasksByParent = new HashMap<>();
-        if (parentKeys.isEmpty()) return subtasksByParent;
+    private void fetchSubtasksOf(JiraApiService service, String baseUrl, Set<String> parentKeys, boolean filter, ReportIndex index) throws Exception {
+        if (parentKeys.isEmpty()) return;
         
         List<String> parentKeyList = new ArrayList<>(parentKeys);
+        Collections.sort(parentKeyList); // Same parents, same batches: lets the issue store reuse its sync state
         int batchSize = 200; 
 
         for (int i = 0; i < parentKeyList.size(); i += batchSize) {
             List<String> batch = parentKeyList.subList(i, Math.min(i + batchSize, parentKeyList.size()));
             String jql = "parent in (" + String.join(",", batch) + ")";
-            int startAt = 0;
-            int total;
-            
-            do {
-                JSONObject payload = new JSONObject()
-                    .put("jql", jql)
-                    .put("fields", new JSONArray().put("summary").put("parent").put("assignee"))
-                    .put("startAt", startAt)
-                    .put("maxResults", 100);
-
-                String response = service.executeRequest(baseUrl + "/rest/api/2/search", "POST", payload.toString());
-                JSONObject responseJson = new JSONObject(response);
-
-                total = responseJson.getInt("total");
-                JSONArray issues = responseJson.getJSONArray("issues");
-
-                for (int j = 0; j < issues.length(); j++) {
-                    JSONObject issue = issues.getJSONObject(j);
-                    JSONObject fields = issue.getJSONObject("fields");
-                    String summary = fields.getString("summary").trim().replace('\t', ' ');
-                    boolean passesFilter = !filter || ISPW_PREFIXES.stream().anyMatch(summary::startsWith);
-                    
-                    if (passesFilter) {
-                        SubtaskInfo subtask = new SubtaskInfo();
-                        subtask.key = issue.getString("key");
-                        subtask.summary = summary;
-                        subtask.parentKey = fields.getJSONObject("parent").getString("key");
-                        if (fields.has("assignee") && !fields.isNull("assignee")) {
-                            subtask.assignee = fields.getJSONObject("assignee").getString("displayName");
-                        }
-                        subtasksByParent.computeIfAbsent(subtask.parentKey, k -> new ArrayList<>()).add(subtask);
+            // Served from the local issue store; only issues changed since the last run are downloaded.
+            service.getIssueStore(baseUrl).sync(jql, Arrays.asList("summary", "parent", "assignee"), issue -> {
+                JSONObject fields = issue.getJSONObject("fields");
+                String summary = fields.getString("summary").trim().replace('\t', ' ');
+                boolean passesFilter = !filter || ISPW_PREFIXES.stream().anyMatch(summary::startsWith);
+
+                if (passesFilter) {
+                    SubtaskInfo subtask = new SubtaskInfo();
+                    subtask.key = issue.getString("key");
+                    subtask.summary = summary;
+                    subtask.parentKey = fields.getJSONObject("parent").getString("key");
+                    if (fields.has("assignee") && !fields.isNull("assignee")) {
+                        subtask.assignee = fields.getJSONObject("assignee").getString("displayName");
                     }
+                    index.addSubtask(subtask);
                 }
-                startAt += issues.length();
-            } while (startAt < total);
+            });
         }
-        return subtasksByParent;
     }
     
     // --- THIS METHOD IS NOW COMPLETE ---
@@ -285,35 +331,68 @@ public class ReportPanel extends JPanel {
         errorArea.setText("Starting JSON report generation...");
         errorArea.setForeground(Color.BLUE);
         setButtonsEnabled(false);
-        final StringBuilder reportContent = new StringBuilder();
 
         new Thread(() -> {
+            File reportFile = null;
             boolean reportGeneratedSuccessfully = false;
             try {
                 JiraApiService service = mainFrame.getService();
                 String baseUrl = mainFrame.getBaseUrl();
-                
-                reportContent.append("JIRA FULL JSON REPORT GENERATED: ").append(new java.util.Date()).append("\n");
-                reportContent.append("====================================================\n\n");
-
-                for (int i = 0; i < keys.length; i++) {
-                    String key = keys[i];
-                    final int current = i + 1;
-                    final int total = keys.length;
-                    SwingUtilities.invokeLater(() -> errorArea.setText("Fetching JSON for " + key + " (" + current + " of " + total + ")..."));
-                    
-                    String endpoint = "/rest/api/2/issue/" + key + "?fields=*all&expand=renderedFields";
-                    String response = service.executeRequest(baseUrl + endpoint, "GET", null);
-                    
-                    reportContent.append("--- FULL JSON FOR ").append(key).append(" ---\n");
-                    reportContent.append(JsonUtils.prettyPrintJson(response)).append("\n\n");
+                reportFile = File.createTempFile("Jira_Report_", ".txt");
+
+                // Issues are fetched 100 per search, a few searches at a time, and written out batch by batch.
+                List<String> uniqueKeys = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(keys)));
+                List<List<String>> batches = new ArrayList<>();
+                for (int i = 0; i < uniqueKeys.size(); i += JSON_REPORT_BATCH_SIZE) {
+                    batches.add(uniqueKeys.subList(i, Math.min(uniqueKeys.size(), i + JSON_REPORT_BATCH_SIZE)));
                 }
-                
+
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+                    writer.write("JIRA FULL JSON REPORT GENERATED: " + new java.util.Date() + "\n");
+                    writer.write("====================================================\n\n");
+
+                    Deque<CompletableFuture<Map<String, JSONObject>>> pending = new ArrayDeque<>();
+                    int window = Math.max(1, service.getMaxInFlight());
+                    int next = 0;
+                    int written = 0;
+                    try {
+                        for (List<String> batch : batches) {
+                            while (next < batches.size() && pending.size() < window) {
+                                List<String> toFetch = batches.get(next++);
+                                pending.add(service.submit(() -> fetchFullIssues(service, baseUrl, toFetch)));
+                            }
+                            Map<String, JSONObject> issues = pending.poll().get();
+                            for (String key : batch) {
+                                writer.write("--- FULL JSON FOR " + key + " ---\n");
+                                JSONObject issue = issues.get(key);
+                                if (issue == null) {
+                                    // Not found by the search (e.g. moved to another key); ask for it directly.
+                                    service.executeStreaming(baseUrl + "/rest/api/2/issue/" + key + "?fields=*all&expand=renderedFields", "GET", null, in -> {
+                                        JsonPrettyPrinter.print(in, writer);
+                                        return null;
+                                    });
+                                } else {
+                                    JsonPrettyPrinter.print(new StringReader(issue.toString()), writer);
+                                }
+                                writer.write("\n\n");
+                            }
+                            written += batch.size();
+                            final int done = written;
+                            SwingUtilities.invokeLater(() -> errorArea.setText("Fetched JSON for " + done + " of " + uniqueKeys.size() + " issues..."));
+                        }
+                    } finally {
+                        for (CompletableFuture<Map<String, JSONObject>> f : pending) {
+                            f.cancel(false); // Only reached when a batch failed
+                        }
+                    }
+                }
+
                 reportGeneratedSuccessfully = true;
 
             } catch (Exception ex) {
+                Throwable cause = ex instanceof java.util.concurrent.ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
                 StringWriter sw = new StringWriter();
-                ex.printStackTrace(new PrintWriter(sw));
+                cause.printStackTrace(new PrintWriter(sw));
                 SwingUtilities.invokeLater(() -> {
                     errorArea.setForeground(Color.RED);
                     errorArea.setText("FATAL ERROR: JSON report failed.\n\n" + sw.toString());
@@ -321,26 +400,38 @@ public class ReportPanel extends JPanel {
             } finally {
                 SwingUtilities.invokeLater(() -> setButtonsEnabled(true));
                 if (reportGeneratedSuccessfully) {
-                    saveAndOpenFile(reportContent.toString());
+                    openFile(reportFile);
+                } else if (reportFile != null) {
+                    reportFile.delete();
                 }
             }
         }).start();
     }
 
-    // --- THIS METHOD IS NOW COMPLETE ---
-    private void saveAndOpenFile(String content) {
+    /**
+     * One search for up to 100 keys with every field, as GET /issue would return them.
+     */
+    private Map<String, JSONObject> fetchFullIssues(JiraApiService service, String baseUrl, List<String> keys) throws Exception {
+        JSONObject payload = new JSONObject();
+        payload.put("jql", "key in (" + String.join(",", keys) + ")");
+        payload.put("fields", new JSONArray().put("*all"));
+        payload.put("expand", new JSONArray().put("renderedFields"));
+        payload.put("maxResults", keys.size());
+        payload.put("validateQuery", false); // A missing key must not fail the whole batch
+        Map<String, JSONObject> issues = new HashMap<>();
+        service.streamSearch(baseUrl + "/rest/api/2/search", payload.toString(), issue -> issues.put(issue.getString("key"), issue));
+        return issues;
+    }
+
+    private void openFile(File file) {
         try {
-            File tempFile = File.createTempFile("Jira_Report_", ".txt");
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
-                writer.write(content);
-            }
             if (Desktop.isDesktopSupported()) {
-                Desktop.getDesktop().open(tempFile);
+                Desktop.getDesktop().open(file);
             }
         } catch (IOException e) {
             SwingUtilities.invokeLater(() -> {
                 errorArea.setForeground(Color.RED);
-                errorArea.setText("ERROR: Could not save or open the report file.\n" + e.getMessage());
+                errorArea.setText("ERROR: Could not open the report file.\n" + e.getMessage());
             });
         }
     }
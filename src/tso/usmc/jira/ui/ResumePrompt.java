@@ -0,0 +1,32 @@
+package tso.usmc.jira.ui;
+
+import javax.swing.*;
+import java.awt.Component;
+
+/**
+ * Asks whether to resume a run that an earlier attempt left unfinished in its journal.
+ */
+final class ResumePrompt {
+
+    static final int RESUME = 0;
+    static final int START_OVER = 1;
+
+    private ResumePrompt() {
+    }
+
+    /**
+     * Shows the question on the EDT and waits for the answer; call it from the run's thread.
+     * @return RESUME, START_OVER, or anything else to cancel.
+     */
+    static int ask(Component parent, String title, String message) {
+        int[] choice = { JOptionPane.CLOSED_OPTION };
+        try {
+            SwingUtilities.invokeAndWait(() -> choice[0] = JOptionPane.showOptionDialog(parent, message,
+                    title, JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null,
+                    new String[]{"Resume", "Start Over", "Cancel"}, "Resume"));
+        } catch (Exception e) {
+            System.err.println("Could not ask about resuming: " + e.getMessage());
+        }
+        return choice[0];
+    }
+}
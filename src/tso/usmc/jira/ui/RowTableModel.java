@@ -0,0 +1,77 @@
+package tso.usmc.jira.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only table model backed by a list of row arrays.
+ *
+ * Unlike DefaultTableModel.addRow, which fires one event (and one row sorter update) per row,
+ * addRows appends a whole batch with a single fireTableRowsInserted. Background workers should
+ * publish rows in chunks (e.g. SwingWorker.publish/process) and hand each chunk to addRows.
+ * Like any Swing model, it must only be used on the Event Dispatch Thread.
+ */
+public class RowTableModel extends AbstractTableModel {
+
+    private String[] columns;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    public RowTableModel(String... columns) {
+        this.columns = columns;
+    }
+
+    public void setColumns(String... columns) {
+        this.columns = columns;
+        fireTableStructureChanged();
+    }
+
+    public void addRows(Collection<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        int first = rows.size();
+        rows.addAll(batch);
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    /**
+     * Replaces all rows with one event.
+     */
+    public void setRows(Collection<Object[]> newRows) {
+        rows.clear();
+        rows.addAll(newRows);
+        fireTableDataChanged();
+    }
+
+    public void clear() {
+        if (rows.isEmpty()) return;
+        int last = rows.size() - 1;
+        rows.clear();
+        fireTableRowsDeleted(0, last);
+    }
+
+    public Object[] getRow(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] values = rows.get(row);
+        return column < values.length ? values[column] : null;
+    }
+}
@@ -1,7 +1,9 @@
 package tso.usmc.jira.ui;
 
 import tso.usmc.jira.app.JiraApiClientGui;
-import tso.usmc.jira.util.JiraUtils;
+import tso.usmc.jira.service.JiraApiException;
+import tso.usmc.jira.service.RunJournal;
+import tso.usmc.jira.service.TransitionResolver;
 import tso.usmc.jira.util.JsonUtils;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
@@ -645,86 +647,170 @@ public class TaskBuilderPanel extends JPanel {
 
             String defaultParent = parentField.getText().trim().toUpperCase();
             int total = selected.size();
-            List<String> createdKeys = new ArrayList<>();
+            String[] createdKeys = new String[total];
 
+            // Journal every creation, so a run that dies halfway can be resumed without duplicate issues.
+            List<String> ids = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                JiraTask t = selected.get(i);
+                ids.add(i + "|" + parentOf(t, defaultParent) + "|" + t.type + "|" + t.summary);
+            }
+            RunJournal journal = MOCK_MODE ? null : openJournal(ids);
+            if (journal != null && journal.hasPriorProgress()) {
+                int choice = ResumePrompt.ask(this, "Resume Task Creation",
+                        "An earlier run of these tasks did not finish.\n" + journal.getCompletedCount() + " steps of "
+                                + total + " tasks already succeeded. Starting over may create duplicates.");
+                try {
+                    if (choice == ResumePrompt.START_OVER) {
+                        journal.reset();
+                    } else if (choice != ResumePrompt.RESUME) {
+                        journal.close();
+                        updateStatus("Cancelled. The interrupted run can still be resumed.");
+                        return;
+                    }
+                } catch (Exception e) {
+                    System.err.println("Could not reset the task journal: " + e.getMessage());
+                }
+            }
+
+            boolean incomplete = false;
             try {
-                if (total > 1 && !MOCK_MODE) {
-                    updateStatus("Creating " + total + " tasks in bulk...");
+                List<Integer> toCreate = new ArrayList<>();
+                for (int i = 0; i < total; i++) {
+                    if (journal != null && journal.isCompleted(ids.get(i))) {
+                        createdKeys[i] = journal.getResult(ids.get(i));
+                    } else if (journal != null && journal.isInDoubt(ids.get(i))) {
+                        incomplete = true;
+                        addRow(selected.get(i).summary, "UNKNOWN: creation was interrupted. Check Jira before creating it again.", "N/A");
+                    } else {
+                        toCreate.add(i);
+                    }
+                }
+
+                if (toCreate.size() > 1 && !MOCK_MODE) {
+                    updateStatus("Creating " + toCreate.size() + " tasks in bulk...");
                     List<String> taskJsons = new ArrayList<>();
-                    for (JiraTask t : selected) {
-                        String parent = (t.parent != null && !t.parent.isEmpty()) ? t.parent : defaultParent;
-                        String proj = parent.contains("-") ? parent.split("-")[0] : "PROJ";
-                        String assignee = t.assignee;
-                        List<String> noAssigneeTypes = Arrays.asList("ST-PCU", "ST-Database", "ST-Interface");
-                        if (t.type != null && noAssigneeTypes.contains(t.type)) {
-                            assignee = null;
-                        }
-                        taskJsons.add(JsonUtils.buildManualJson(proj, parent, t.summary, t.description, t.type, assignee, t.component, t.duedate));
+                    List<String> batchIds = new ArrayList<>();
+                    for (int i : toCreate) {
+                        taskJsons.add(buildCreateJson(selected.get(i), defaultParent));
+                        batchIds.add(ids.get(i));
                     }
                     String bulkJson = JsonUtils.buildBulkJson(taskJsons);
-                    String resp = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/bulk", "POST", bulkJson);
-                    
+                    if (journal != null) journal.begin(batchIds);
+                    String resp;
+                    try {
+                        resp = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/bulk", "POST", bulkJson);
+                    } catch (Exception e) {
+                        // Jira answers 400 when every element failed, so nothing was created; other errors leave the batch in doubt.
+                        if (journal != null && JiraApiException.isClientError(e)) {
+                            for (String id : batchIds) {
+                                journal.fail(id);
+                            }
+                            journal.sync();
+                        }
+                        throw e;
+                    }
+
+                    // "issues" lists the created issues in input order; "errors" names the elements that failed.
                     JSONObject bulkResp = new JSONObject(resp);
                     JSONArray issues = bulkResp.getJSONArray("issues");
-                    for (int i = 0; i < issues.length(); i++) {
-                        createdKeys.add(issues.getJSONObject(i).getString("key"));
+                    Map<Integer, String> failedElements = new HashMap<>();
+                    JSONArray errors = bulkResp.optJSONArray("errors");
+                    if (errors != null) {
+                        for (int e = 0; e < errors.length(); e++) {
+                            JSONObject err = errors.getJSONObject(e);
+                            failedElements.put(err.optInt("failedElementNumber", -1), String.valueOf(err.opt("elementErrors")));
+                        }
+                    }
+                    int next = 0;
+                    for (int j = 0; j < toCreate.size(); j++) {
+                        int i = toCreate.get(j);
+                        if (failedElements.containsKey(j)) {
+                            incomplete = true;
+                            if (journal != null) journal.fail(ids.get(i));
+                            addRow(selected.get(i).summary, "FAILED: " + failedElements.get(j), "N/A");
+                            continue;
+                        }
+                        createdKeys[i] = issues.getJSONObject(next++).getString("key");
+                        if (journal != null) journal.complete(ids.get(i), createdKeys[i]);
                     }
+                    if (journal != null) journal.sync();
                 } else {
                     // Single create or Mock mode
-                    for (int i = 0; i < total; i++) {
+                    for (int i : toCreate) {
                         JiraTask t = selected.get(i);
-                        String parent = (t.parent != null && !t.parent.isEmpty()) ? t.parent : defaultParent;
-                        String proj = parent.contains("-") ? parent.split("-")[0] : "PROJ";
                         if (MOCK_MODE) {
                             Thread.sleep(400);
-                            createdKeys.add(proj + "-" + (100 + new Random().nextInt(900)));
+                            String parent = parentOf(t, defaultParent);
+                            createdKeys[i] = (parent.contains("-") ? parent.split("-")[0] : "PROJ") + "-" + (100 + new Random().nextInt(900));
                         } else {
-                            String assignee = t.assignee;
-                            List<String> noAssigneeTypes = Arrays.asList("ST-PCU", "ST-Database", "ST-Interface");
-                            if (t.type != null && noAssigneeTypes.contains(t.type)) {
-                                assignee = null;
+                            if (journal != null) journal.begin(ids.get(i));
+                            String resp;
+                            try {
+                                resp = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue", "POST", buildCreateJson(t, defaultParent));
+                            } catch (Exception e) {
+                                // A 4xx means Jira rejected it; anything else may or may not have created the issue.
+                                if (journal != null && JiraApiException.isClientError(e)) {
+                                    journal.fail(ids.get(i));
+                                    journal.sync();
+                                }
+                                throw e;
+                            }
+                            createdKeys[i] = new JSONObject(resp).getString("key");
+                            if (journal != null) {
+                                journal.complete(ids.get(i), createdKeys[i]);
+                                journal.sync();
                             }
-                            String createJson = JsonUtils.buildManualJson(proj, parent, t.summary, t.description, t.type, assignee, t.component, t.duedate);
-                            String resp = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue", "POST", createJson);
-                            createdKeys.add(new JSONObject(resp).getString("key"));
                         }
                     }
                 }
 
                 // Now process transitions and notifications for the created issues
+                TransitionResolver resolver = MOCK_MODE ? null : mainFrame.getService().getTransitionResolver(mainFrame.getBaseUrl());
                 for (int i = 0; i < selected.size(); i++) {
                     JiraTask t = selected.get(i);
-                    String key = createdKeys.get(i);
+                    String key = createdKeys[i];
+                    if (key == null) continue; // Failed or in doubt, reported above
+                    if (resolver != null) {
+                        // New issues of one project and type share their initial status, so only the first needs a lookup.
+                        String parent = parentOf(t, defaultParent);
+                        resolver.rememberCreated(key, parent.contains("-") ? parent.split("-")[0] : "PROJ", t.type);
+                    }
                     String link = mainFrame.getBaseUrl() + "/browse/" + key;
                     String status = "CREATED";
+                    String transitionId = ids.get(i) + "|transition";
+                    String notifyId = ids.get(i) + "|notify";
 
-                    if (!t.transition.isEmpty()) {
+                    if (!t.transition.isEmpty() && journal != null && journal.isCompleted(transitionId)) {
+                        status = journal.getResult(transitionId);
+                    } else if (!t.transition.isEmpty()) {
                         updateStatus("Transitioning " + key + " to " + t.transition + "...");
                         try {
-                            String transitionId = null;
+                            boolean moved;
                             if (MOCK_MODE) {
                                 Thread.sleep(300);
-                                transitionId = "711";
+                                moved = true;
                             } else {
-                                String transitionsResponse = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/transitions", "GET", null);
-                                transitionId = JiraUtils.findTransitionIdByName(transitionsResponse, t.transition);
+                                moved = resolver.transition(key, t.transition);
                             }
-                            if (transitionId != null) {
-                                if (!MOCK_MODE) {
-                                    JSONObject transitionPayload = new JSONObject();
-                                    transitionPayload.put("transition", new JSONObject().put("id", transitionId));
-                                    mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/transitions", "POST", transitionPayload.toString());
-                                }
+                            if (moved) {
                                 status = "CREATED & MOVED TO: " + t.transition.toUpperCase();
                             } else {
                                 status = "CREATED (Trans. '" + t.transition + "' not found)";
                             }
+                            if (journal != null) journal.complete(transitionId, status);
                         } catch (Exception ex) {
+                            incomplete = true;
                             status = "CREATED (Trans. Failed: " + ex.getMessage() + ")";
                         }
                     }
 
-                    if (t.notify != null && !t.notify.trim().isEmpty()) {
+                    if (t.notify != null && !t.notify.trim().isEmpty() && journal != null && journal.isCompleted(notifyId)) {
+                        status += " & NOTIFIED";
+                    } else if (t.notify != null && !t.notify.trim().isEmpty() && journal != null && journal.isInDoubt(notifyId)) {
+                        incomplete = true;
+                        status += " (Notify interrupted; users may have been notified already)";
+                    } else if (t.notify != null && !t.notify.trim().isEmpty()) {
                         updateStatus("Notifying users for " + key + "...");
                         try {
                             if (MOCK_MODE) {
@@ -743,23 +829,73 @@ public class TaskBuilderPanel extends JPanel {
                                     }
                                 }
                                 notifyPayload.put("to", new JSONObject().put("users", usersToNotify));
-                                mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/notify", "POST", notifyPayload.toString());
+                                // Sending it twice mails everyone twice, so it is journaled before it goes out.
+                                if (journal != null) journal.begin(notifyId);
+                                try {
+                                    mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue/" + key + "/notify", "POST", notifyPayload.toString());
+                                } catch (Exception e) {
+                                    if (journal != null && JiraApiException.isClientError(e)) {
+                                        journal.fail(notifyId);
+                                        journal.sync();
+                                    }
+                                    throw e;
+                                }
+                                if (journal != null) {
+                                    journal.complete(notifyId, null);
+                                    journal.sync();
+                                }
                             }
                             status += " & NOTIFIED";
                         } catch (Exception notifyEx) {
+                            incomplete = true;
                             status += " (Notify Failed: " + notifyEx.getMessage() + ")";
                         }
                     }
                     addRow(t.summary, status, link);
                 }
-                updateStatus("Execution Complete. " + total + " tasks processed.");
+                updateStatus("Execution Complete. " + total + " tasks processed."
+                        + (incomplete && journal != null ? " Run the same tasks again to finish the rest." : ""));
             } catch (Exception e) {
-                updateStatus("Execution Failed: " + e.getMessage());
+                incomplete = true;
+                updateStatus("Execution Failed: " + e.getMessage() + (journal != null ? " Run the same tasks again to resume." : ""));
                 addRow("SYSTEM ERROR", e.getMessage(), "N/A");
+            } finally {
+                if (journal != null) {
+                    try {
+                        if (incomplete) journal.close(); else journal.finish();
+                    } catch (Exception e) {
+                        System.err.println("Could not close the task journal: " + e.getMessage());
+                    }
+                }
             }
         }).start();
     }
 
+    private static String parentOf(JiraTask t, String defaultParent) {
+        return (t.parent != null && !t.parent.isEmpty()) ? t.parent : defaultParent;
+    }
+
+    private static String buildCreateJson(JiraTask t, String defaultParent) {
+        String parent = parentOf(t, defaultParent);
+        String proj = parent.contains("-") ? parent.split("-")[0] : "PROJ";
+        String assignee = t.assignee;
+        List<String> noAssigneeTypes = Arrays.asList("ST-PCU", "ST-Database", "ST-Interface");
+        if (t.type != null && noAssigneeTypes.contains(t.type)) {
+            assignee = null;
+        }
+        return JsonUtils.buildManualJson(proj, parent, t.summary, t.description, t.type, assignee, t.component, t.duedate);
+    }
+
+    private RunJournal openJournal(List<String> taskIds) {
+        try {
+            File dir = new File(mainFrame.getJiraConfig().getConfigFile().getParentFile(), "journal");
+            return RunJournal.open(dir, "tasks", taskIds);
+        } catch (Exception e) {
+            System.err.println("Task journal unavailable, running without resume support: " + e.getMessage());
+            return null;
+        }
+    }
+
     private void addRow(String s, String st, String l) { SwingUtilities.invokeLater(() -> resultsTableModel.addRow(new Object[]{s, st, l})); }
     
         private void setupInputAreaKeyBindings() {
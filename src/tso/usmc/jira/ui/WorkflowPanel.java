@@ -5,16 +5,13 @@ import org.json.JSONObject;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import tso.usmc.jira.app.JiraApiClientGui;
+import tso.usmc.jira.service.PaginatedSearch;
 import tso.usmc.jira.util.JiraConfig;
-import tso.usmc.jira.util.JiraUtils;
 import tso.usmc.jira.ui.AssigneeOption;
 
 /**
@@ -29,7 +26,7 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
 
     // --- UI Components ---
     private final JButton refreshButton = new JButton("Refresh Issue List");
-    private final DefaultTableModel tableModel=new DefaultTableModel(new String[]{"Key","Summary","Status"},0){@Override public boolean isCellEditable(int row,int column){return false;}};
+    private final RowTableModel tableModel = new RowTableModel("Key", "Summary", "Status");
     private final JTable resultsTable = new JTable(tableModel);
     private final JLabel statusLabel = new JLabel("Enter a JQL query and click Execute.");
 
@@ -162,32 +159,35 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
         refreshButton.setEnabled(false);
         processButton.setEnabled(false);
         statusLabel.setText("Fetching issues from Jira...");
-        tableModel.setRowCount(0);
+        tableModel.clear();
 
-        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+        // Rows are published as they stream in; Swing coalesces them into chunks for process().
+        SwingWorker<Integer, Object[]> worker = new SwingWorker<Integer, Object[]>() {
             @Override
-            protected String doInBackground() throws Exception {
-                String jql = jiraConfig.getWorkflowJql();
-                String encodedJql = URLEncoder.encode(jql, "UTF-8");
-                String url = mainFrame.getBaseUrl() + "/rest/api/2/search?jql=" + encodedJql
-                        + "&fields=summary,status,duedate";
-                return mainFrame.getService().executeRequest(url, "GET", null);
+            protected Integer doInBackground() throws Exception {
+                JSONObject payload = new JSONObject();
+                payload.put("jql", jiraConfig.getWorkflowJql());
+                payload.put("fields", new JSONArray(new String[] { "summary", "status", "duedate" }));
+                PaginatedSearch search = new PaginatedSearch(mainFrame.getService(),
+                        mainFrame.getBaseUrl() + "/rest/api/2/search");
+                return search.run(payload, 100, issue -> {
+                    JSONObject fields = issue.getJSONObject("fields");
+                    publish(new Object[] { issue.getString("key"), fields.getString("summary"),
+                            fields.getJSONObject("status").getString("name") });
+                });
+            }
+
+            @Override
+            protected void process(java.util.List<Object[]> chunk) {
+                tableModel.addRows(chunk);
+                statusLabel.setText("Fetching issues from Jira... " + tableModel.getRowCount() + " so far.");
             }
 
             @Override
             protected void done() {
                 try {
-                    String response = get();
-                    JSONObject result = new JSONObject(response);
-                    JSONArray issues = result.getJSONArray("issues");
-                    for (int i = 0; i < issues.length(); i++) {
-                        JSONObject issue = issues.getJSONObject(i);
-                        String key = issue.getString("key");
-                        String summary = issue.getJSONObject("fields").getString("summary");
-                        String status = issue.getJSONObject("fields").getJSONObject("status").getString("name");
-                        tableModel.addRow(new Object[] { key, summary, status });
-                    }
-                    statusLabel.setText("Found " + issues.length() + " issues.");
+                    int count = get();
+                    statusLabel.setText("Found " + count + " issues.");
                 } catch (Exception e) {
                     statusLabel.setText("Error fetching issues.");
                     // ** CHANGED: Use local response pane **
@@ -288,7 +288,7 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
             try {
                 String originalIssueJson = mainFrame.getService().executeRequest(
                         mainFrame.getBaseUrl() + "/rest/api/2/issue/" + this.originalIssueKey
-                                + "?fields=summary,status,duedate,description,reporter,attachment,issuelinks",
+                                + "?fields=summary,project,issuetype,status,duedate,description,reporter,attachment,issuelinks",
                         "GET", null);
 
                 JSONObject debugJson = new JSONObject(originalIssueJson);
@@ -296,6 +296,8 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
                 // style='font-size:10px; word-wrap:break-word; white-space:pre-wrap;'>" +
                 // debugJson.toString(4) + "</pre>");
                 JSONObject sourceIssue = new JSONObject(originalIssueJson);
+                mainFrame.getService().getTransitionResolver(mainFrame.getBaseUrl())
+                        .remember(this.originalIssueKey, sourceIssue.getJSONObject("fields"));
 
                 step1_UpdateOriginalIssue();
                 String newIssueKey = step2_3_5_CreateMovedClone(sourceIssue);
@@ -391,6 +393,7 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
             String response = mainFrame.getService().executeRequest(mainFrame.getBaseUrl() + "/rest/api/2/issue",
                     "POST", createJsonBody);
             String newKey = new JSONObject(response).getString("key");
+            mainFrame.getService().getTransitionResolver(mainFrame.getBaseUrl()).rememberCreated(newKey, "TFS", newIssueType);
             addReportRow("2, 5", "Create new issue " + newKey, "<font color='green'>Success</font>");
             return newKey;
         }
@@ -460,16 +463,10 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
             // --- Part 5: Transition Status (only for Unassigned) ---
             if (selectedAssignment.getComponentName() == null) {
                 try {
-                    String transitionsJson = mainFrame.getService().executeRequest(
-                            mainFrame.getBaseUrl() + "/rest/api/2/issue/" + newIssueKey + "/transitions", "GET", null);
-                    String transitionId = JiraUtils.findTransitionIdByName(transitionsJson, "Unassigned Backlog");
-
-                    if (transitionId != null) {
-                        String transitionPayload = new JSONObject()
-                                .put("transition", new JSONObject().put("id", transitionId)).toString();
-                        mainFrame.getService().executeRequest(
-                                mainFrame.getBaseUrl() + "/rest/api/2/issue/" + newIssueKey + "/transitions", "POST",
-                                transitionPayload);
+                    boolean moved = mainFrame.getService().getTransitionResolver(mainFrame.getBaseUrl())
+                            .transition(newIssueKey, "Unassigned Backlog");
+
+                    if (moved) {
                         addReportRow("3.6", "Change Status",
                                 "<font color='green'>Transitioned to 'Unassigned Backlog'</font>");
                     } else {
@@ -485,13 +482,10 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
 
         private void step1_UpdateOriginalIssue() throws Exception {
             String fullUrl = mainFrame.getBaseUrl() + "/rest/api/2/issue/" + this.originalIssueKey;
-            String transitionsJson = mainFrame.getService().executeRequest(fullUrl + "/transitions", "GET", null);
-            String transitionId = JiraUtils.findTransitionIdByName(transitionsJson, "TO: In Progress");
-            if (transitionId == null)
+            boolean moved = mainFrame.getService().getTransitionResolver(mainFrame.getBaseUrl())
+                    .transition(this.originalIssueKey, "TO: In Progress");
+            if (!moved)
                 throw new RuntimeException("'In Progress' transition not found for " + this.originalIssueKey);
-            String transitionJsonBody = new JSONObject().put("transition", new JSONObject().put("id", transitionId))
-                    .toString();
-            mainFrame.getService().executeRequest(fullUrl + "/transitions", "POST", transitionJsonBody);
 
             String fieldUpdateJsonBody = new JSONObject()
                     .put("fields", new JSONObject().put("customfield_10519", JSONObject.NULL)).toString();
@@ -516,18 +510,14 @@ public class WorkflowPanel extends JPanel implements tso.usmc.jira.util.ConfigCh
                 JSONObject attachment = attachments.getJSONObject(i);
                 String filename = attachment.getString("filename");
                 String contentUrl = attachment.getString("content");
-                File tempFile = null;
                 try {
-                    tempFile = mainFrame.getService().downloadAttachmentToTempFile(contentUrl, filename);
+                    // Streams the download directly into the upload; no full copy in memory.
                     String uploadUrl = mainFrame.getBaseUrl() + "/rest/api/2/issue/" + newIssueKey + "/attachments";
-                    mainFrame.getService().uploadAttachment(uploadUrl, tempFile, filename);
+                    mainFrame.getService().cloneAttachment(contentUrl, uploadUrl, filename);
                 } catch (Exception e) {
                     addReportRow("Attachment", "Cloning failed for: " + filename,
                             "<font color='red'>" + e.getMessage() + "</font>");
                     throw e;
-                } finally {
-                    if (tempFile != null)
-                        tempFile.delete();
                 }
             }
             addReportRow("3.1A", "Cloned " + attachments.length() + " attachment(s).",
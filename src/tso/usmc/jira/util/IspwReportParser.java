@@ -0,0 +1,222 @@
+package tso.usmc.jira.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses the fixed-column ISPW task report used by reconciliation.
+ *
+ * Column positions come from the recon.ispw.* settings and are resolved once. Each line is
+ * copied into a reusable buffer and cut by index; only the values handed to the handler are
+ * turned into Strings, so a report with hundreds of thousands of lines parses in one pass
+ * with little garbage. Files are read as single-byte text (ISPW extracts are plain ASCII), and
+ * large ones are memory-mapped rather than read into the heap.
+ */
+public class IspwReportParser {
+
+    /** Called for each task line, in file order. */
+    public interface RecordHandler {
+        /**
+         * @param taskName Type and name separated by one space, e.g. "COB PGM001".
+         * @param action "Compile-only", "Delete" or " ".
+         */
+        void onRecord(String taskName, String srNumber, String userId, String action);
+    }
+
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    /** Counts of one parse. */
+    public static final class Result {
+        private final int records;
+        private final int malformed;
+
+        Result(int records, int malformed) {
+            this.records = records;
+            this.malformed = malformed;
+        }
+
+        public int getRecords() { return records; }
+
+        /** Lines long enough to be task lines that did not fit the configured columns. */
+        public int getMalformed() { return malformed; }
+    }
+
+    private static final long MAP_THRESHOLD = 4L * 1024 * 1024;
+    private static final int PROGRESS_INTERVAL = 1024 * 1024;
+
+    private static final int RECORD = 0;
+    private static final int SKIPPED = 1;
+    private static final int MALFORMED = 2;
+
+    private final int minLineLength;
+    private final int typeStart, typeEnd;
+    private final int nameStart, nameEnd;
+    private final int srStart, srEnd;
+    private final int userStart, userEnd;
+    private final int actionIndex;
+    private final int requiredLength; // Shortest line all columns fit in
+    private final boolean boundsValid;
+
+    public IspwReportParser(int minLineLength, int[] typeBounds, int[] nameBounds, int[] srBounds, int[] userBounds, int actionIndex) {
+        this.minLineLength = minLineLength;
+        this.typeStart = typeBounds[0];
+        this.typeEnd = typeBounds[1];
+        this.nameStart = nameBounds[0];
+        this.nameEnd = nameBounds[1];
+        this.srStart = srBounds[0];
+        this.srEnd = srBounds[1];
+        this.userStart = userBounds[0];
+        this.userEnd = userBounds[1];
+        this.actionIndex = actionIndex;
+        this.requiredLength = Math.max(Math.max(typeEnd, nameEnd), Math.max(Math.max(srEnd, userEnd), actionIndex + 1));
+        this.boundsValid = typeStart >= 0 && typeStart <= typeEnd && nameStart >= 0 && nameStart <= nameEnd
+                && srStart >= 0 && srStart <= srEnd && userStart >= 0 && userStart <= userEnd && actionIndex >= 0;
+    }
+
+    /**
+     * A parser for the columns in the recon.ispw.* settings.
+     */
+    public static IspwReportParser fromConfig(JiraConfig config) {
+        return new IspwReportParser(
+                config.getIspwMinLineLength(65),
+                config.getIspwColumnBounds("ci_type", new int[]{0, 4}),
+                config.getIspwColumnBounds("ci_name", new int[]{5, 13}),
+                config.getIspwColumnBounds("sr", new int[]{30, 40}),
+                config.getIspwColumnBounds("user", new int[]{41, 47}),
+                config.getIspwActionIndex(55));
+    }
+
+    /**
+     * Parses pasted report text.
+     */
+    public Result parse(String text, RecordHandler handler) {
+        char[] line = new char[Math.max(256, requiredLength)];
+        StringBuilder name = new StringBuilder(64);
+        int records = 0;
+        int malformed = 0;
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) end = length;
+            int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            int len = lineEnd - start;
+            if (len > line.length) line = new char[len];
+            text.getChars(start, lineEnd, line, 0);
+            int outcome = parseLine(line, len, name, handler);
+            if (outcome == RECORD) records++;
+            else if (outcome == MALFORMED) malformed++;
+            start = end + 1;
+        }
+        return new Result(records, malformed);
+    }
+
+    /**
+     * Parses a report file. Reads the whole file, so call it off the EDT.
+     * @param listener Called about every megabyte; may be null.
+     */
+    public Result parse(File file, RecordHandler handler, ProgressListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("ISPW report is too large (" + size / (1024 * 1024) + " MB)");
+            }
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Read until full
+                }
+                buffer.flip();
+            }
+            return parse(buffer, handler, listener);
+        }
+    }
+
+    private Result parse(ByteBuffer buffer, RecordHandler handler, ProgressListener listener) {
+        char[] line = new char[Math.max(256, requiredLength)];
+        StringBuilder name = new StringBuilder(64);
+        int records = 0;
+        int malformed = 0;
+        int size = buffer.limit();
+        int len = 0;
+        long nextProgress = PROGRESS_INTERVAL;
+        for (int i = 0; i <= size; i++) {
+            byte b = i < size ? buffer.get(i) : (byte) '\n';
+            if (b != '\n') {
+                if (len == line.length) {
+                    char[] grown = new char[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, len);
+                    line = grown;
+                }
+                line[len++] = (char) (b & 0xFF);
+                continue;
+            }
+            if (i == size && len == 0) break; // The file ended with a line break
+            int lineLength = len > 0 && line[len - 1] == '\r' ? len - 1 : len;
+            int outcome = parseLine(line, lineLength, name, handler);
+            if (outcome == RECORD) records++;
+            else if (outcome == MALFORMED) malformed++;
+            len = 0;
+            if (listener != null && i >= nextProgress) {
+                listener.onProgress(i, size);
+                nextProgress += PROGRESS_INTERVAL;
+            }
+        }
+        if (listener != null) {
+            listener.onProgress(size, size);
+        }
+        return new Result(records, malformed);
+    }
+
+    private int parseLine(char[] line, int len, StringBuilder name, RecordHandler handler) {
+        if (len < minLineLength) return SKIPPED;
+        if (!boundsValid || len < requiredLength) return MALFORMED;
+
+        name.setLength(0);
+        appendCollapsed(line, typeStart, typeEnd, name);
+        if (name.length() == 0) return SKIPPED;
+        int typeLength = name.length();
+        name.append(' ');
+        appendCollapsed(line, nameStart, nameEnd, name);
+        if (name.length() == typeLength + 1) return SKIPPED;
+
+        char actionChar = line[actionIndex];
+        String action = actionChar == 'C' ? "Compile-only" : actionChar == 'D' ? "Delete" : " ";
+        handler.onRecord(name.toString(), trimmed(line, srStart, srEnd), trimmed(line, userStart, userEnd), action);
+        return RECORD;
+    }
+
+    /**
+     * Appends the column without surrounding whitespace and with inner runs of whitespace
+     * collapsed to one space.
+     */
+    private static void appendCollapsed(char[] line, int start, int end, StringBuilder out) {
+        while (start < end && line[start] <= ' ') start++;
+        while (end > start && line[end - 1] <= ' ') end--;
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = line[i];
+            if (c <= ' ') {
+                if (!inSpace) out.append(' ');
+                inSpace = true;
+            } else {
+                out.append(c);
+                inSpace = false;
+            }
+        }
+    }
+
+    private static String trimmed(char[] line, int start, int end) {
+        while (start < end && line[start] <= ' ') start++;
+        while (end > start && line[end - 1] <= ' ') end--;
+        return new String(line, start, end - start);
+    }
+}
@@ -20,7 +20,7 @@ import javax.swing.JOptionPane;
  * Loads and provides access to configuration settings from the JiraConfig.ini file.
  */
 public class JiraConfig {
-    private static final String CURRENT_CONFIG_VERSION = "1.2";
+    private static final String CURRENT_CONFIG_VERSION = "2.0";
     private final Properties properties = new Properties();
     private final File configFile;
     private final File templateFile;
@@ -484,4 +484,66 @@ public class JiraConfig {
             return defaultMin;
         }
     }
+
+    public int getHttpMaxConnectionsPerHost(int defaultMax) {
+        return getIntProperty("http.max_connections_per_host", defaultMax);
+    }
+
+    public int getHttpMaxInFlight(int defaultMax) {
+        return getIntProperty("http.max_in_flight", defaultMax);
+    }
+
+    public double getHttpMaxRequestsPerSecond(double defaultRate) {
+        String val = getProperty("http.max_requests_per_second");
+        if (val == null) return defaultRate;
+        try {
+            return Double.parseDouble(val.trim());
+        } catch (Exception e) {
+            return defaultRate;
+        }
+    }
+
+    public int getHttpCacheMaxMemoryMb(int defaultMb) {
+        return getIntProperty("http.cache_max_memory_mb", defaultMb);
+    }
+
+    public int getHttpCacheTtlSeconds(int defaultSeconds) {
+        return getIntProperty("http.cache_ttl_seconds", defaultSeconds);
+    }
+
+    public boolean isHttpCacheDiskEnabled() {
+        String value = getProperty("http.cache_disk_enabled");
+        return value != null && Boolean.parseBoolean(value.trim());
+    }
+
+    public int getHttpCacheDiskMaxMb(int defaultMb) {
+        return getIntProperty("http.cache_disk_max_mb", defaultMb);
+    }
+
+    public int getHttpSearchKeysetThreshold(int defaultThreshold) {
+        return getIntProperty("http.search_keyset_threshold", defaultThreshold);
+    }
+
+    public boolean isIssueStoreEnabled() {
+        String value = getProperty("issue_store.enabled");
+        return value == null || Boolean.parseBoolean(value.trim());
+    }
+
+    public int getBulkWorkers(int defaultWorkers) {
+        return getIntProperty("bulk.workers", defaultWorkers);
+    }
+
+    public int getRawApiViewerThresholdKb(int defaultKb) {
+        return getIntProperty("rawapi.viewer_threshold_kb", defaultKb);
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String val = getProperty(key);
+        if (val == null) return defaultValue;
+        try {
+            return Integer.parseInt(val.trim());
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
 }
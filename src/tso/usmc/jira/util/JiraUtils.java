@@ -40,5 +40,70 @@ public class JiraUtils {
         return null;
     }
 
+    /**
+     * Returns the display value of one field of a search result issue: the key, a readable
+     * list of issue links, the name/displayName of object fields, or "---" when empty.
+     *
+     * @param issue     One issue from a /search response.
+     * @param fieldName The field id, or "key".
+     */
+    public static String getFieldValue(JSONObject issue, String fieldName) {
+        if (!issue.has("fields")) return "N/A";
+        JSONObject fields = issue.getJSONObject("fields");
+
+        if ("key".equalsIgnoreCase(fieldName)) {
+            return issue.optString("key", "N/A");
+        }
+        
+        if ("issuelinks".equalsIgnoreCase(fieldName)) {
+            if (!fields.has("issuelinks") || fields.isNull("issuelinks") || fields.getJSONArray("issuelinks").length() == 0) {
+                return "---";
+            }
+            
+            JSONArray links = fields.getJSONArray("issuelinks");
+            StringBuilder formattedLinks = new StringBuilder();
+            
+            for (int i = 0; i < links.length(); i++) {
+                JSONObject link = links.getJSONObject(i);
+                JSONObject linkType = link.getJSONObject("type");
+                
+                String linkKey = "N/A";
+                String linkDescription = "";
+                
+                if (link.has("inwardIssue")) {
+                    linkDescription = linkType.getString("inward");
+                    linkKey = link.getJSONObject("inwardIssue").getString("key");
+                } else if (link.has("outwardIssue")) {
+                    linkDescription = linkType.getString("outward");
+                    linkKey = link.getJSONObject("outwardIssue").getString("key");
+                }
+                
+                if (i > 0) {
+                    formattedLinks.append(", ");
+                }
+                formattedLinks.append(linkDescription).append(" ").append(linkKey);
+            }
+            return formattedLinks.toString();
+        }
+
+        if (!fields.has(fieldName) || fields.isNull(fieldName)) {
+            return "---";
+        }
+
+        Object field = fields.get(fieldName);
+
+        if (field instanceof JSONObject) {
+            JSONObject nestedObj = (JSONObject) field;
+            if (nestedObj.has("name")) {
+                return nestedObj.getString("name");
+            } else if (nestedObj.has("displayName")) {
+                return nestedObj.getString("displayName");
+            } else {
+                return "[Object]";
+            }
+        }
+        return field.toString();
+    }
+
     // You can add other static utility methods here in the future
 }
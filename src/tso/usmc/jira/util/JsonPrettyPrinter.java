@@ -0,0 +1,149 @@
+package tso.usmc.jira.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Re-indents JSON text while copying it from a Reader to a Writer.
+ *
+ * The input is not parsed into objects: it is read in fixed-size chunks and every character is
+ * copied or replaced by a line break and indent, so memory use does not depend on the size of
+ * the document. Whitespace outside strings is dropped and re-created; strings, including their
+ * escape sequences, are copied unchanged. Input that is not valid JSON is still copied, only
+ * the layout may be off.
+ */
+public final class JsonPrettyPrinter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String INDENT = "    ";
+
+    private static volatile String[] indents = new String[] { "\n" };
+
+    private JsonPrettyPrinter() {
+    }
+
+    public static String format(String json) {
+        if (json == null || json.isEmpty()) return "";
+        StringWriter out = new StringWriter(json.length() + json.length() / 4);
+        try {
+            print(new StringReader(json), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by StringReader and StringWriter
+        }
+        return out.toString();
+    }
+
+    /**
+     * Reads UTF-8 JSON from the stream; the stream is not closed.
+     */
+    public static void print(InputStream in, Writer out) throws IOException {
+        print(new InputStreamReader(in, StandardCharsets.UTF_8), out);
+    }
+
+    /**
+     * Copies the JSON text from the reader to the writer, indented. Neither is closed; the
+     * writer is not flushed.
+     */
+    public static void print(Reader in, Writer out) throws IOException {
+        char[] buf = new char[BUFFER_SIZE];
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean openPending = false; // A '{' or '[' whose line break waits for the first element
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            int runStart = 0; // Start of the characters not written yet that are copied as they are
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case ' ': case '\t': case '\n': case '\r':
+                        out.write(buf, runStart, i - runStart);
+                        runStart = i + 1;
+                        continue;
+                    case '}': case ']':
+                        out.write(buf, runStart, i - runStart);
+                        runStart = i + 1;
+                        depth = Math.max(0, depth - 1);
+                        if (openPending) {
+                            openPending = false; // Empty object or array stays on one line
+                        } else {
+                            out.write(indent(depth));
+                        }
+                        out.write(c);
+                        continue;
+                    default:
+                        break;
+                }
+                if (openPending) {
+                    out.write(buf, runStart, i - runStart);
+                    runStart = i;
+                    out.write(indent(depth));
+                    openPending = false;
+                }
+                switch (c) {
+                    case '"':
+                        inString = true;
+                        break;
+                    case '{': case '[':
+                        out.write(buf, runStart, i + 1 - runStart);
+                        runStart = i + 1;
+                        depth++;
+                        openPending = true;
+                        break;
+                    case ',':
+                        out.write(buf, runStart, i + 1 - runStart);
+                        runStart = i + 1;
+                        out.write(indent(depth));
+                        break;
+                    case ':':
+                        out.write(buf, runStart, i + 1 - runStart);
+                        runStart = i + 1;
+                        out.write(' ');
+                        break;
+                    default:
+                        break;
+                }
+            }
+            out.write(buf, runStart, n - runStart);
+        }
+        if (openPending) {
+            out.write(indent(depth)); // Truncated input ends right after an opening bracket
+        }
+    }
+
+    /**
+     * A line break followed by the indent of the given depth, built once per depth.
+     */
+    private static String indent(int depth) {
+        String[] cached = indents;
+        if (depth < cached.length) return cached[depth];
+        synchronized (JsonPrettyPrinter.class) {
+            if (depth >= indents.length) {
+                String[] grown = new String[Math.max(depth + 1, indents.length * 2)];
+                System.arraycopy(indents, 0, grown, 0, indents.length);
+                for (int i = indents.length; i < grown.length; i++) {
+                    grown[i] = grown[i - 1] + INDENT;
+                }
+                indents = grown;
+            }
+            return indents[depth];
+        }
+    }
+}
@@ -128,30 +128,11 @@ public class JsonUtils {
     }
 
     /**
-     * Formats JSON for the UI display.
+     * Formats JSON for the UI display. For large documents use JsonPrettyPrinter with a
+     * Reader and Writer directly.
      */
     public static String prettyPrintJson(String json) {
-        if (json == null || json.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        int indentLevel = 0;
-        boolean inQuotes = false;
-        for (char c : json.toCharArray()) {
-            if (c == '\"') inQuotes = !inQuotes;
-            if (!inQuotes) {
-                if (c == '{' || c == '[') {
-                    sb.append(c).append("\n").append(indent(++indentLevel));
-                    continue;
-                } else if (c == '}' || c == ']') {
-                    sb.append("\n").append(indent(--indentLevel)).append(c);
-                    continue;
-                } else if (c == ',') {
-                    sb.append(c).append("\n").append(indent(indentLevel));
-                    continue;
-                }
-            }
-            sb.append(c);
-        }
-        return sb.toString();
+        return JsonPrettyPrinter.format(json);
     }
 
     public static String escape(String s) {
@@ -162,10 +143,4 @@ public class JsonUtils {
                 .replace("\r", "\\r")
                 .replace("\t", "\\t");
     }
-
-    private static String indent(int level) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < level; i++) sb.append("    ");
-        return sb.toString();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package tso.usmc.jira.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Writer that keeps text in memory until it grows beyond a threshold, then moves it to a
+ * UTF-8 temp file and writes the rest there. Small outputs never touch the disk; large ones
+ * never sit in the heap as a whole.
+ */
+public class SpillWriter extends Writer {
+
+    private final int thresholdChars;
+    private final String prefix;
+    private StringBuilder memory = new StringBuilder();
+    private File file;
+    private Writer fileWriter;
+
+    /**
+     * @param prefix Prefix of the temp file name.
+     */
+    public SpillWriter(int thresholdChars, String prefix) {
+        this.thresholdChars = thresholdChars;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (fileWriter != null) {
+            fileWriter.write(cbuf, off, len);
+            return;
+        }
+        memory.append(cbuf, off, len);
+        if (memory.length() > thresholdChars) {
+            spill();
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (fileWriter != null) {
+            fileWriter.write(str, off, len);
+            return;
+        }
+        memory.append(str, off, off + len);
+        if (memory.length() > thresholdChars) {
+            spill();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileWriter != null) fileWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileWriter != null) fileWriter.close();
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * The temp file, or null while everything is still in memory. Deleted when the JVM exits.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * The text written so far, as long as it was not spilled.
+     */
+    @Override
+    public String toString() {
+        return memory == null ? "" : memory.toString();
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile(prefix, ".txt");
+        file.deleteOnExit();
+        fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+        fileWriter.write(memory.toString());
+        memory = null;
+    }
+}
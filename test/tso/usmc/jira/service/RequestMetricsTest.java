@@ -0,0 +1,35 @@
+package tso.usmc.jira.service;
+
+import java.net.URL;
+
+/**
+ * Checks of the templates requests are recorded under. The project has no test framework, so
+ * this runs as a plain program and fails with an AssertionError:
+ *
+ *   javac -cp bin -d test-bin test/tso/usmc/jira/service/RequestMetricsTest.java
+ *   java -cp bin;test-bin;lib/json-20231013.jar tso.usmc.jira.service.RequestMetricsTest
+ */
+public class RequestMetricsTest {
+
+    public static void main(String[] args) throws Exception {
+        check("GET /rest/api/2/issue/{key}/transitions",
+                RequestMetrics.template("get", new URL("https://jira.example.com/rest/api/2/issue/ABC-12/transitions")));
+        check("GET /rest/api/2/search",
+                RequestMetrics.template("GET", new URL("https://jira.example.com/rest/api/2/search?jql=project%3DABC")));
+        check("POST /rest/api/2/issue/{key}/attachments",
+                RequestMetrics.template("POST", new URL("https://jira.example.com/rest/api/2/issue/ABC-7/attachments")));
+        check("GET /rest/api/2/attachment/{id}",
+                RequestMetrics.template("GET", new URL("https://jira.example.com/rest/api/2/attachment/10234")));
+        check("GET /rest/agile/1.0/board/{id}/sprint",
+                RequestMetrics.template("GET", new URL("https://jira.example.com/rest/agile/1.0/board/42/sprint")));
+        check("GET /jira/rest/api/2/issue/{id}",
+                RequestMetrics.template("GET", new URL("https://example.com/jira/rest/api/2/issue/10234")));
+        System.out.println("RequestMetricsTest passed");
+    }
+
+    private static void check(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError("expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+}